@@ -0,0 +1,76 @@
+package com.example.benchmarks;
+
+import com.example.common.dto.OrderDTO;
+import com.example.common.dto.OrderItemDTO;
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.mapper.OrderMapper;
+import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sample data shared by the benchmarks, shaped like a typical order.
+ */
+final class Fixtures {
+
+    static final String JWT_SECRET = "veryverysecretkeyforjwtthatisatleast32byteslong12345";
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private Fixtures() {
+    }
+
+    static List<OrderItemDTO> items(int count) {
+        List<OrderItemDTO> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new OrderItemDTO((long) i + 1, i % 5 + 1, Money.ofMinor(1_999L + i * 100L)));
+        }
+        return items;
+    }
+
+    static Order order(int itemCount) {
+        Order order = new Order();
+        order.setId(1L);
+        order.setUserId(42L);
+        order.setStatus(OrderStatus.DELIVERED);
+        order.setCreatedAt(CREATED_AT);
+        order.setItems(items(itemCount));
+        order.setTotalAmount(Money.ofMinor(1_000_00L));
+        List<OrderStatusHistory> history = new ArrayList<>();
+        OrderStatus[] path = {OrderStatus.REGISTERED, OrderStatus.PAID, OrderStatus.INVENTORY_DONE, OrderStatus.DELIVERED};
+        for (int i = 0; i < path.length; i++) {
+            history.add(OrderStatusHistory.builder()
+                    .id((long) i + 1)
+                    .order(order)
+                    .status(path[i])
+                    .timestamp(CREATED_AT.plusMinutes(i))
+                    .comment("Status changed to " + path[i])
+                    .build());
+        }
+        order.setStatusHistoryDTO(history);
+        return order;
+    }
+
+    static OrderDTO orderDto(int itemCount) {
+        return new OrderMapper().toDto(order(itemCount));
+    }
+
+    /**
+     * Sets a {@code @Value}-injected field on a service created outside Spring.
+     */
+    static <T> T inject(T target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+            return target;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + fieldName + " on " + target.getClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.benchmarks;
+
+import com.example.auth.model.User;
+import com.example.auth.model.UserRoles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Token parsing as done by each service's JwtService on every authenticated request.
+ * The token is issued once by the auth-service JwtService.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtParsingBenchmark {
+
+    @Param({"auth", "order", "payment", "inventory", "delivery"})
+    private String service;
+
+    private String token;
+    private Function<String, Object> parser;
+
+    @Setup
+    public void setUp() {
+        // The Redis blacklist is only consulted by validateToken, which is not measured here
+        com.example.auth.service.JwtService issuer = Fixtures.inject(
+                new com.example.auth.service.JwtService(null), "secretKey", Fixtures.JWT_SECRET);
+        Fixtures.inject(issuer, "jwtExpiration", 3_600_000L);
+        token = issuer.generateToken(User.builder()
+                .id(42L)
+                .username("benchmark")
+                .password("n/a")
+                .roles(Set.of(UserRoles.ROLE_USER))
+                .build());
+        parser = switch (service) {
+            case "auth" -> issuer::extractUsername;
+            case "order" -> Fixtures.inject(new com.example.order.config.JwtService(), "jwtSecret", Fixtures.JWT_SECRET)::getClaims;
+            case "payment" -> Fixtures.inject(new com.example.payment.config.JwtService(), "jwtSecret", Fixtures.JWT_SECRET)::getClaims;
+            case "inventory" -> Fixtures.inject(new com.example.inventory.config.JwtService(), "jwtSecret", Fixtures.JWT_SECRET)::getClaims;
+            case "delivery" -> Fixtures.inject(new com.example.delivery.config.JwtService(), "jwtSecret", Fixtures.JWT_SECRET)::getClaims;
+            default -> throw new IllegalArgumentException("Unknown service: " + service);
+        };
+    }
+
+    @Benchmark
+    public Object parse() {
+        return parser.apply(token);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.benchmarks;
+
+import com.example.common.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the BigDecimal arithmetic that order totals and balance debits used to do
+ * with the long-backed {@link Money} type. Run with {@code ./gradlew :benchmarks:jmh};
+ * the gc profiler reports {@code gc.alloc.rate.norm} per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoneyBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private BigDecimal[] decimalPrices;
+    private Money[] moneyPrices;
+    private int[] quantities;
+
+    private BigDecimal decimalBalance;
+    private BigDecimal decimalAmount;
+    private Money moneyBalance;
+    private Money moneyAmount;
+
+    @Setup
+    public void setUp() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        decimalPrices = new BigDecimal[items];
+        moneyPrices = new Money[items];
+        quantities = new int[items];
+        for (int i = 0; i < items; i++) {
+            long minor = random.nextLong(100, 1_000_000);
+            decimalPrices[i] = BigDecimal.valueOf(minor, 2);
+            moneyPrices[i] = Money.ofMinor(minor);
+            quantities[i] = random.nextInt(1, 10);
+        }
+        decimalBalance = new BigDecimal("100000.00");
+        decimalAmount = new BigDecimal("1234.56");
+        moneyBalance = Money.parse("100000.00");
+        moneyAmount = Money.parse("1234.56");
+    }
+
+    @Benchmark
+    public BigDecimal totalBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            total = total.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money totalMoney() {
+        long total = 0;
+        for (int i = 0; i < items; i++) {
+            total = Math.addExact(total, Math.multiplyExact(moneyPrices[i].getMinorUnits(), quantities[i]));
+        }
+        return Money.ofMinor(total);
+    }
+
+    @Benchmark
+    public BigDecimal debitBigDecimal() {
+        return decimalBalance.compareTo(decimalAmount) >= 0 ? decimalBalance.subtract(decimalAmount) : decimalBalance;
+    }
+
+    @Benchmark
+    public Money debitMoney() {
+        return moneyBalance.isGreaterThanOrEqualTo(moneyAmount) ? moneyBalance.minus(moneyAmount) : moneyBalance;
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        return new BigDecimal("1234.56");
+    }
+
+    @Benchmark
+    public Money parseMoney() {
+        return Money.parse("1234.56");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.benchmarks;
+
+import com.example.common.dto.OrderDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderDTO through the Kafka value serde, configured with the same properties as the
+ * producer and consumer factories in the services' KafkaConfig classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderJsonSerdeBenchmark {
+
+    private static final String TOPIC = "order-created";
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private JsonSerializer<Object> serializer;
+    private JsonDeserializer<Object> deserializer;
+    private OrderDTO order;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        serializer = new JsonSerializer<>();
+        serializer.configure(Map.of(JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        deserializer = new JsonDeserializer<>();
+        deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "com.example.common.dto",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.common.dto.OrderDTO",
+                JsonDeserializer.USE_TYPE_INFO_HEADERS, false), false);
+        order = Fixtures.orderDto(items);
+        payload = serializer.serialize(TOPIC, order);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, order);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, payload);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.benchmarks;
+
+import com.example.common.dto.OrderDTO;
+import com.example.order.mapper.OrderMapper;
+import com.example.order.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping done for every order returned by the REST API and the export.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderMapperBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private final OrderMapper mapper = new OrderMapper();
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = Fixtures.order(items);
+    }
+
+    @Benchmark
+    public OrderDTO toDto() {
+        return mapper.toDto(order);
+    }
+}
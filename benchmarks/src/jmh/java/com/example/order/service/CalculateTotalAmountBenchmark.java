@@ -0,0 +1,43 @@
+package com.example.order.service;
+
+import com.example.common.dto.OrderItemDTO;
+import com.example.common.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lives in the service package because {@link OrderService#calculateTotalAmount} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalculateTotalAmountBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private List<OrderItemDTO> orderItems;
+
+    @Setup
+    public void setUp() {
+        orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            orderItems.add(new OrderItemDTO((long) i + 1, i % 5 + 1, Money.ofMinor(1_999L + i * 100L)));
+        }
+    }
+
+    @Benchmark
+    public Money calculateTotalAmount() {
+        return OrderService.calculateTotalAmount(orderItems);
+    }
+}
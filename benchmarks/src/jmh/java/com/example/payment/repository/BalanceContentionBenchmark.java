@@ -0,0 +1,129 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debits and credits per second when many threads hit the same few balances, per balance model.
+ * Needs a running PostgreSQL given by {@code BENCHMARK_JDBC_URL}; without it the benchmark fails
+ * and JMH moves on to the others. Its tables live in a schema of their own, {@value #SCHEMA},
+ * which is recreated for every trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(16)
+public class BalanceContentionBenchmark {
+
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    private static final String SCHEMA = "balance_benchmark";
+
+    @Param({"in-place", "ledger", "striped"})
+    private String model;
+
+    @Param({"1", "64"})
+    private int users;
+
+    // Only used by the striped model; with one hot user, throughput should grow with it
+    @Param({"16"})
+    private int stripes;
+
+    private HikariDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private BalanceStore balanceStore;
+    private LedgerBalanceStore ledgerBalanceStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String jdbcUrl = System.getenv("BENCHMARK_JDBC_URL");
+        if (jdbcUrl == null) {
+            throw new IllegalStateException("Set BENCHMARK_JDBC_URL to a PostgreSQL database to run this benchmark");
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername(env("BENCHMARK_JDBC_USERNAME", "postgres"));
+        dataSource.setPassword(env("BENCHMARK_JDBC_PASSWORD", "postgres"));
+        dataSource.setMaximumPoolSize(17);
+        // Unqualified table names in the stores resolve to this schema only
+        dataSource.setSchema(SCHEMA);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("""
+                CREATE TABLE balances (
+                    id bigserial PRIMARY KEY,
+                    user_id bigint NOT NULL UNIQUE,
+                    amount numeric(38, 2) NOT NULL,
+                    snapshot_entry_id bigint
+                )""");
+        if ("ledger".equals(model)) {
+            ledgerBalanceStore = new LedgerBalanceStore(jdbcTemplate);
+            ledgerBalanceStore.createTables();
+            balanceStore = ledgerBalanceStore;
+        } else if ("striped".equals(model)) {
+            StripedBalanceStore stripedBalanceStore = new StripedBalanceStore(jdbcTemplate, stripes);
+            stripedBalanceStore.createTables();
+            balanceStore = stripedBalanceStore;
+        } else {
+            balanceStore = new InPlaceBalanceStore(jdbcTemplate);
+        }
+        for (long userId = 1; userId <= users; userId++) {
+            long id = userId;
+            transactionTemplate.executeWithoutResult(status -> balanceStore.create(id, Money.parse("1000000.00")));
+        }
+    }
+
+    // Stands in for the scheduled compactor, so tails do not grow through the whole run
+    @Setup(Level.Iteration)
+    public void compact() {
+        if (ledgerBalanceStore != null) {
+            transactionTemplate.execute(status -> ledgerBalanceStore.compact(1, users));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean debit() {
+        long userId = ThreadLocalRandom.current().nextLong(users) + 1;
+        return transactionTemplate.execute(status -> balanceStore.debit(userId, AMOUNT));
+    }
+
+    @Benchmark
+    public boolean credit() {
+        long userId = ThreadLocalRandom.current().nextLong(users) + 1;
+        return transactionTemplate.execute(status -> balanceStore.credit(userId, AMOUNT));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
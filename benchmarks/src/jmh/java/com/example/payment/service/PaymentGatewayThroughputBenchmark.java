@@ -0,0 +1,160 @@
+package com.example.payment.service;
+
+import com.example.common.money.Money;
+import com.example.payment.gateway.LatencyProfile;
+import com.example.payment.gateway.SimulatedPaymentGateway;
+import com.example.payment.model.Payment;
+import com.example.payment.repository.BalanceRepository;
+import com.example.payment.repository.BalanceStore;
+import com.example.payment.repository.InPlaceBalanceStore;
+import com.example.payment.repository.PaymentRepository;
+import com.example.payment.repository.PaymentWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Payments per second that PaymentService sustains against a slow processor. The database is
+ * replaced by no-op repositories, so the result isolates the effect of processor latency and the
+ * in-flight limit: throughput should track {@code maxInFlight / latency}, not the thread count.
+ * Lives in the service package because the test constructor of {@link PaymentService} is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class PaymentGatewayThroughputBenchmark {
+
+    private static final int PAYMENTS = 2048;
+
+    @Param({"FIXED", "NORMAL", "LONG_TAIL"})
+    private LatencyProfile profile;
+
+    @Param({"20"})
+    private long meanLatencyMs;
+
+    @Param({"64", "1024"})
+    private int maxInFlight;
+
+    private final AtomicLong orderIds = new AtomicLong();
+    private final AtomicLong paymentIds = new AtomicLong();
+    private final Money amount = Money.parse("10.00");
+    private ScheduledExecutorService timer;
+    private ExecutorService settlement;
+    private PaymentService paymentService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        settlement = Executors.newFixedThreadPool(8);
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(profile,
+                Duration.ofMillis(meanLatencyMs), Duration.ofMillis(meanLatencyMs / 4),
+                0.01, 20, 0.0, 0.0, timer);
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+        BalanceCache balanceCache = new BalanceCache(new SimpleMeterRegistry(), transactionManager, 1000, Duration.ofMinutes(1));
+        // No holds: the benchmark measures authorize and capture back to back
+        paymentService = new PaymentService(noOpPaymentRepository(), noOpPaymentWriter(), null,
+                new BalanceService(noOpBalanceRepository(), noOpBalanceStore(), balanceCache),
+                gateway, new TransactionTemplate(transactionManager), Duration.ofMinutes(1),
+                settlement, maxInFlight, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.shutdownNow();
+        settlement.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYMENTS)
+    public void processPayments() {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[PAYMENTS];
+        for (int i = 0; i < PAYMENTS; i++) {
+            results[i] = paymentService.processPaymentAsync(orderIds.incrementAndGet(), 1L, amount);
+        }
+        CompletableFuture.allOf(results).join();
+    }
+
+    private static PaymentRepository noOpPaymentRepository() {
+        return (PaymentRepository) Proxy.newProxyInstance(PaymentRepository.class.getClassLoader(),
+                new Class<?>[]{PaymentRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByOrderId" -> Optional.<Payment>empty();
+                    case "save" -> args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private PaymentWriter noOpPaymentWriter() {
+        return new PaymentWriter(null) {
+            @Override
+            public Optional<Long> insertCompleted(Payment payment) {
+                return Optional.of(paymentIds.incrementAndGet());
+            }
+        };
+    }
+
+    private static BalanceRepository noOpBalanceRepository() {
+        return (BalanceRepository) Proxy.newProxyInstance(BalanceRepository.class.getClassLoader(),
+                new Class<?>[]{BalanceRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "existsByUserId" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static BalanceStore noOpBalanceStore() {
+        return new InPlaceBalanceStore(null) {
+            @Override
+            public boolean debit(Long userId, Money amount) {
+                return true;
+            }
+
+            @Override
+            public boolean credit(Long userId, Money amount) {
+                return true;
+            }
+        };
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
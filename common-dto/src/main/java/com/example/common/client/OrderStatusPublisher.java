@@ -0,0 +1,52 @@
+package com.example.common.client;
+
+import com.example.common.dto.OrderStatusUpdateDTO;
+import com.example.common.enums.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reports order status transitions to order-service through the order-status topic. Updates are
+ * keyed by order id, so all transitions of one order land on one partition in publish order.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusPublisher {
+
+    private final KafkaTemplate<String, OrderStatusUpdateDTO> orderStatusKafkaTemplate;
+
+    @Value("${kafka.topics.order-status:order-status}")
+    private String orderStatusTopic;
+
+    /**
+     * Publishes the update asynchronously. The event that starts the next saga stage must only be
+     * sent once the returned future completes: order-service rejects a status whose predecessor it
+     * has not seen, and the next stage reports its own status on this topic.
+     *
+     * @return completes when the broker has stored the update, exceptionally if the send failed
+     */
+    public CompletableFuture<Void> publish(Long orderId, OrderStatus status, String message) {
+        OrderStatusUpdateDTO update = OrderStatusUpdateDTO.builder()
+                .orderId(orderId)
+                .status(status)
+                .comment(message)
+                .timestamp(LocalDateTime.now())
+                .build();
+        return orderStatusKafkaTemplate.send(orderStatusTopic, orderId.toString(), update)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.error("Failed to publish order status: orderId={}, status={}", orderId, status, e);
+                    } else {
+                        log.info("Published order status: orderId={}, status={}", orderId, status);
+                    }
+                })
+                .thenAccept(result -> { });
+    }
+}
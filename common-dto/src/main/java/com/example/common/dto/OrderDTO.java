@@ -1,6 +1,7 @@
 package com.example.common.dto;
 
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,7 +18,7 @@ import java.util.List;
 public class OrderDTO {
     private Long id;
     private Long userId;
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     private String deliveryAddress;
     private OrderStatus status;
     private LocalDateTime createdAt;
@@ -27,7 +28,7 @@ public class OrderDTO {
     public OrderDTO(long l, long l1, double totalAmount, String deliveryAddress, OrderStatus orderStatus) {
         this.id = l;
         this.userId = l1;
-        this.totalAmount = BigDecimal.valueOf(totalAmount);
+        this.totalAmount = Money.of(BigDecimal.valueOf(totalAmount));
         this.deliveryAddress = deliveryAddress;
         this.status = orderStatus;
     }
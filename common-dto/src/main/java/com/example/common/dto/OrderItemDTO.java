@@ -1,13 +1,14 @@
 package com.example.common.dto;
 
+import com.example.common.money.Money;
+import com.example.common.money.MoneyConverter;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Embeddable;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,5 +17,6 @@ import java.math.BigDecimal;
 public class OrderItemDTO {
     private Long productId;
     private Integer quantity;
-    private BigDecimal price;
+    @Convert(converter = MoneyConverter.class)
+    private Money price;
 }
@@ -0,0 +1,20 @@
+package com.example.common.dto;
+
+import com.example.common.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusUpdateDTO {
+    private Long orderId;
+    private OrderStatus status;
+    private String comment;
+    private LocalDateTime timestamp;
+}
@@ -1,5 +1,15 @@
 package com.example.common.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order statuses. {@code order_status_history.status} is stored by ordinal, so constants
+ * must only ever be appended.
+ */
 public enum OrderStatus {
     REGISTERED,
     PAID,
@@ -9,5 +19,44 @@ public enum OrderStatus {
     INVENTORY_DONE,
     INVENTORY_FAILED,
     DELIVERED,
-    COMPLETED
+    COMPLETED;
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+    private static final Map<OrderStatus, Set<OrderStatus>> PREDECESSORS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(REGISTERED, EnumSet.of(PAID, PAYMENT_FAILED, UNEXPECTED_FAILURE));
+        // Held funds can still expire after PAID, before they are captured
+        TRANSITIONS.put(PAID, EnumSet.of(INVENTORY_DONE, INVENTORY_FAILED, PAYMENT_FAILED, UNEXPECTED_FAILURE));
+        TRANSITIONS.put(INVENTORY_DONE, EnumSet.of(DELIVERED, DELIVERY_FAILED, PAYMENT_FAILED, UNEXPECTED_FAILURE));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(COMPLETED));
+        for (OrderStatus status : values()) {
+            TRANSITIONS.putIfAbsent(status, EnumSet.noneOf(OrderStatus.class));
+            PREDECESSORS.put(status, EnumSet.noneOf(OrderStatus.class));
+        }
+        TRANSITIONS.forEach((from, targets) -> targets.forEach(to -> PREDECESSORS.get(to).add(from)));
+        TRANSITIONS.replaceAll((status, targets) -> Collections.unmodifiableSet(targets));
+        PREDECESSORS.replaceAll((status, sources) -> Collections.unmodifiableSet(sources));
+    }
+
+    /**
+     * Whether the order saga ends in this status.
+     */
+    public boolean isTerminal() {
+        return switch (this) {
+            case PAYMENT_FAILED, DELIVERY_FAILED, UNEXPECTED_FAILURE, INVENTORY_FAILED, DELIVERED, COMPLETED -> true;
+            case REGISTERED, PAID, INVENTORY_DONE -> false;
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    /**
+     * The statuses an order may move to this status from; empty for {@link #REGISTERED}.
+     */
+    public Set<OrderStatus> predecessors() {
+        return PREDECESSORS.get(this);
+    }
 }
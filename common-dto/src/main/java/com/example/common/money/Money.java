@@ -0,0 +1,211 @@
+package com.example.common.money;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Immutable amount of money held as a {@code long} count of minor units (cents, kopecks) of a
+ * currency. Arithmetic is exact and overflow-checked and allocates one small object per result,
+ * instead of the unscaled {@link java.math.BigInteger} and intermediate objects of
+ * {@link BigDecimal}.
+ * <p>
+ * In JSON an amount is a plain decimal number in {@link #DEFAULT_CURRENCY}, so payloads are
+ * unchanged from the {@code BigDecimal} fields this type replaces. In the database it is stored
+ * in the existing numeric columns through {@link MoneyConverter}.
+ */
+@JsonSerialize(using = MoneyJsonSerializer.class)
+@JsonDeserialize(using = MoneyJsonDeserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("RUB");
+
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return ofMinor(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        fractionDigits(currency);
+        return minorUnits == 0 && currency == DEFAULT_CURRENCY ? ZERO : new Money(minorUnits, currency);
+    }
+
+    /**
+     * Converts a decimal amount, rounding half up to the currency's minor unit the way the
+     * {@code numeric(38, 2)} columns do.
+     */
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        Objects.requireNonNull(amount, "amount");
+        return ofMinor(amount.setScale(fractionDigits(currency), RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact(), currency);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code "-12.5"} without creating a {@link BigDecimal};
+     * exponent notation falls back to {@link #of(BigDecimal)}.
+     *
+     * @throws NumberFormatException if {@code text} is not a decimal number
+     */
+    public static Money parse(CharSequence text) {
+        int length = text.length();
+        int digits = fractionDigits(DEFAULT_CURRENCY);
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int fraction = -1;
+        boolean roundUp = false;
+        boolean anyDigit = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (fraction < 0 || fraction < digits) {
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else if (fraction == digits) {
+                    roundUp = c >= '5';
+                    fraction++;
+                }
+            } else if (c == 'e' || c == 'E') {
+                return of(new BigDecimal(text.toString()));
+            } else {
+                throw new NumberFormatException("Not a decimal amount: " + text);
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("Not a decimal amount: " + text);
+        }
+        units = Math.multiplyExact(units, POWERS_OF_TEN[digits - Math.min(Math.max(fraction, 0), digits)]);
+        if (roundUp) {
+            units = Math.addExact(units, 1);
+        }
+        return ofMinor(negative ? -units : units);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return other.minorUnits == 0 ? this : ofMinor(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return other.minorUnits == 0 ? this : ofMinor(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long factor) {
+        return factor == 1 ? this : ofMinor(Math.multiplyExact(minorUnits, factor), currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isGreaterThanOrEqualTo(Money other) {
+        return compareTo(other) >= 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    /**
+     * The amount as a plain decimal with the currency's number of fraction digits, e.g. {@code "-0.50"}.
+     */
+    public String toPlainString() {
+        int digits = fractionDigits(currency);
+        if (digits == 0) {
+            return Long.toString(minorUnits);
+        }
+        long abs = Math.abs(minorUnits);
+        long whole = abs / POWERS_OF_TEN[digits];
+        long fraction = abs % POWERS_OF_TEN[digits];
+        StringBuilder text = new StringBuilder(24);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        text.append(whole).append('.');
+        for (long power = POWERS_OF_TEN[digits - 1]; power > 1 && fraction < power; power /= 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Money other && minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency.getCurrencyCode();
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    private static int fractionDigits(Currency currency) {
+        int digits = currency.getDefaultFractionDigits();
+        if (digits < 0 || digits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.common.money;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads {@link Money} from a JSON number or numeric string in {@link Money#DEFAULT_CURRENCY}.
+ */
+public class MoneyJsonDeserializer extends StdDeserializer<Money> {
+
+    public MoneyJsonDeserializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+            try {
+                return Money.parse(parser.getText().trim());
+            } catch (NumberFormatException | ArithmeticException e) {
+                return (Money) context.handleWeirdStringValue(Money.class, parser.getText(), e.getMessage());
+            }
+        }
+        return (Money) context.handleUnexpectedToken(Money.class, parser);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.common.money;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link Money} as a JSON number, e.g. {@code 12.50}.
+ */
+public class MoneyJsonSerializer extends StdSerializer<Money> {
+
+    public MoneyJsonSerializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(value.toPlainString());
+    }
+}
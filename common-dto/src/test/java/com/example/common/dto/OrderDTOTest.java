@@ -1,9 +1,9 @@
 package com.example.common.dto;
 
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
 import org.junit.jupiter.api.Test;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,11 +17,11 @@ class OrderDTOTest {
         // given
         Long id = 1L;
         Long userId = 2L;
-        BigDecimal totalAmount = new BigDecimal("100.00");
+        Money totalAmount = Money.parse("100.00");
         OrderStatus status = OrderStatus.REGISTERED;
         LocalDateTime createdAt = LocalDateTime.now();
         List<OrderItemDTO> items = new ArrayList<>();
-        items.add(new OrderItemDTO(1L, 2, new BigDecimal("50.00")));
+        items.add(new OrderItemDTO(1L, 2, Money.parse("50.00")));
         String deliveryAddress = "Test Address";
 
         // when
@@ -51,7 +51,7 @@ class OrderDTOTest {
         OrderDTO orderDTO = new OrderDTO();
         Long id = 1L;
         Long userId = 2L;
-        BigDecimal totalAmount = new BigDecimal("100.00");
+        Money totalAmount = Money.parse("100.00");
         OrderStatus status = OrderStatus.REGISTERED;
         LocalDateTime createdAt = LocalDateTime.now();
         List<OrderItemDTO> items = new ArrayList<>();
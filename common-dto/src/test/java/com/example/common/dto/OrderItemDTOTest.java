@@ -1,9 +1,8 @@
 package com.example.common.dto;
 
+import com.example.common.money.Money;
 import org.junit.jupiter.api.Test;
 
-import java.math.BigDecimal;
-
 import static org.assertj.core.api.Assertions.assertThat;
 
 class OrderItemDTOTest {
@@ -13,7 +12,7 @@ class OrderItemDTOTest {
         // given
         Long productId = 1L;
         Integer quantity = 2;
-        BigDecimal price = new BigDecimal("50.00");
+        Money price = Money.parse("50.00");
 
         // when
         OrderItemDTO orderItemDTO = OrderItemDTO.builder()
@@ -33,7 +32,7 @@ class OrderItemDTOTest {
         // given
         Long productId = 1L;
         Integer quantity = 2;
-        BigDecimal price = new BigDecimal("50.00");
+        Money price = Money.parse("50.00");
 
         // when
         OrderItemDTO orderItemDTO = new OrderItemDTO(productId, quantity, price);
@@ -50,7 +49,7 @@ class OrderItemDTOTest {
         OrderItemDTO orderItemDTO = new OrderItemDTO();
         Long productId = 1L;
         Integer quantity = 2;
-        BigDecimal price = new BigDecimal("50.00");
+        Money price = Money.parse("50.00");
 
         // when
         orderItemDTO.setProductId(productId);
@@ -0,0 +1,44 @@
+package com.example.common.enums;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    @Test
+    void testSagaTransitionsAreAllowed() {
+        assertThat(OrderStatus.REGISTERED.canTransitionTo(OrderStatus.PAID)).isTrue();
+        assertThat(OrderStatus.PAID.canTransitionTo(OrderStatus.INVENTORY_DONE)).isTrue();
+        assertThat(OrderStatus.INVENTORY_DONE.canTransitionTo(OrderStatus.DELIVERED)).isTrue();
+        assertThat(OrderStatus.INVENTORY_DONE.canTransitionTo(OrderStatus.DELIVERY_FAILED)).isTrue();
+        assertThat(OrderStatus.PAID.canTransitionTo(OrderStatus.PAYMENT_FAILED)).isTrue();
+    }
+
+    @Test
+    void testStaleAndRepeatedTransitionsAreRejected() {
+        assertThat(OrderStatus.INVENTORY_DONE.canTransitionTo(OrderStatus.PAID)).isFalse();
+        assertThat(OrderStatus.PAID.canTransitionTo(OrderStatus.PAID)).isFalse();
+        assertThat(OrderStatus.REGISTERED.canTransitionTo(OrderStatus.DELIVERED)).isFalse();
+    }
+
+    @Test
+    void testFailedStatusesHaveNoSuccessors() {
+        for (OrderStatus next : OrderStatus.values()) {
+            assertThat(OrderStatus.PAYMENT_FAILED.canTransitionTo(next)).isFalse();
+            assertThat(OrderStatus.DELIVERY_FAILED.canTransitionTo(next)).isFalse();
+        }
+    }
+
+    @Test
+    void testPredecessorsMirrorTransitions() {
+        assertThat(OrderStatus.REGISTERED.predecessors()).isEmpty();
+        assertThat(OrderStatus.UNEXPECTED_FAILURE.predecessors())
+                .containsExactlyInAnyOrder(OrderStatus.REGISTERED, OrderStatus.PAID, OrderStatus.INVENTORY_DONE);
+        for (OrderStatus to : OrderStatus.values()) {
+            for (OrderStatus from : to.predecessors()) {
+                assertThat(from.canTransitionTo(to)).isTrue();
+            }
+        }
+    }
+}
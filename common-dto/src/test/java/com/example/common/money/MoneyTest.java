@@ -0,0 +1,93 @@
+package com.example.common.money;
+
+import com.example.common.dto.OrderItemDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testArithmeticIsExact() {
+        Money price = Money.parse("19.99");
+
+        assertThat(price.times(3)).isEqualTo(Money.ofMinor(5997));
+        assertThat(price.plus(Money.parse("0.01"))).isEqualTo(Money.parse("20"));
+        assertThat(Money.parse("0.10").minus(Money.parse("0.30")).toPlainString()).isEqualTo("-0.20");
+        assertThat(Money.parse("100").isGreaterThanOrEqualTo(Money.parse("100.00"))).isTrue();
+        assertThat(Money.parse("99.99").isLessThan(Money.parse("100"))).isTrue();
+    }
+
+    @Test
+    void testOverflowIsRejected() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void testParseMatchesBigDecimalRoundingHalfUp() {
+        for (String text : new String[]{"0", "7", "-7", "0.5", "12.3", "12.34", "12.345", "12.344", "-12.345", "+3.999", "1E2"}) {
+            assertThat(Money.parse(text)).as(text).isEqualTo(Money.of(new BigDecimal(text)));
+        }
+    }
+
+    @Test
+    void testParseRejectsMalformedInput() {
+        for (String text : new String[]{"", "-", ".", "1.2.3", "12a", "1,5"}) {
+            assertThatThrownBy(() -> Money.parse(text)).as(text).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    @Test
+    void testToPlainStringAndBigDecimal() {
+        assertThat(Money.ofMinor(5).toPlainString()).isEqualTo("0.05");
+        assertThat(Money.ofMinor(-1050).toPlainString()).isEqualTo("-10.50");
+        assertThat(Money.ofMinor(1050).toBigDecimal()).isEqualTo(new BigDecimal("10.50"));
+        assertThat(Money.ofMinor(1500, Currency.getInstance("JPY")).toPlainString()).isEqualTo("1500");
+    }
+
+    @Test
+    void testCurrenciesDoNotMix() {
+        Money euros = Money.of(BigDecimal.ONE, Currency.getInstance("EUR"));
+
+        assertThatThrownBy(() -> euros.plus(Money.parse("1"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(euros).isNotEqualTo(Money.parse("1"));
+    }
+
+    @Test
+    void testJsonRoundTripKeepsNumericFormat() throws Exception {
+        OrderItemDTO item = new OrderItemDTO(1L, 2, Money.parse("50.5"));
+
+        String json = objectMapper.writeValueAsString(item);
+
+        assertThat(json).contains("\"price\":50.50");
+        assertThat(objectMapper.readValue(json, OrderItemDTO.class)).isEqualTo(item);
+        assertThat(objectMapper.readValue("{\"price\":\"7\"}", OrderItemDTO.class).getPrice()).isEqualTo(Money.ofMinor(700));
+        assertThat(objectMapper.readValue("{\"price\":null}", OrderItemDTO.class).getPrice()).isNull();
+    }
+
+    @Test
+    void testJsonRejectsNonNumericAmount() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"price\":\"abc\"}", OrderItemDTO.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void testConverterRoundTrip() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.parse("12.30"))).isEqualTo(new BigDecimal("12.30"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("12.3"))).isEqualTo(Money.parse("12.30"));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.delivery.config;
 
 import com.example.common.dto.OrderDTO;
+import com.example.common.dto.OrderStatusUpdateDTO;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -75,4 +76,21 @@ public class KafkaConfig {
     public KafkaTemplate<String, OrderDTO> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    @Bean
+    public ProducerFactory<String, OrderStatusUpdateDTO> orderStatusProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        // Retries must not reorder the status updates of one order
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, OrderStatusUpdateDTO> orderStatusKafkaTemplate() {
+        return new KafkaTemplate<>(orderStatusProducerFactory());
+    }
 }
@@ -1,6 +1,6 @@
 package com.example.delivery.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
 import com.example.delivery.service.DeliveryService;
@@ -18,12 +18,16 @@ public class OrderProcessingListener {
 
     private final DeliveryService deliveryService;
     private final KafkaTemplate<String, OrderDTO> kafkaTemplate;
-    private final OrderServiceClient orderServiceClient;
+    private final OrderStatusPublisher orderStatusPublisher;
 
     @Value("${kafka.topics.delivery-result}")
     private String deliveryResult;
 
-    @KafkaListener(topics = "${kafka.topics.inventory-reserved}")
+    /**
+     * Starts delivery of an order with reserved stock once payment-service has confirmed its funds
+     * are taken; with held payments that is after the capture.
+     */
+    @KafkaListener(topics = "${kafka.topics.payment-captured}")
     public void handleNewOrder(OrderDTO orderDTO) {
         log.info("Received new order for processing. Order details: id={}, userId={}, totalAmount={}, status={}",
                 orderDTO.getId(), orderDTO.getUserId(), orderDTO.getTotalAmount(), orderDTO.getStatus());
@@ -40,7 +44,7 @@ public class OrderProcessingListener {
                 ? "Order successfully delivered" 
                 : "Delivery failed";
 
-            orderServiceClient.updateOrderStatus(
+            orderStatusPublisher.publish(
                 orderDTO.getId(),
                 orderDTO.getStatus(),
                 statusMessage
@@ -50,7 +54,7 @@ public class OrderProcessingListener {
         } catch (Exception e) {
             log.error("Failed to process delivery for order: {}", orderDTO.getId(), e);
             orderDTO.setStatus(OrderStatus.DELIVERY_FAILED);
-            orderServiceClient.updateOrderStatus(
+            orderStatusPublisher.publish(
                 orderDTO.getId(),
                 OrderStatus.DELIVERY_FAILED,
                 "Failed to process delivery: " + e.getMessage()
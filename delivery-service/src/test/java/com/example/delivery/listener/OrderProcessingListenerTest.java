@@ -1,6 +1,6 @@
 package com.example.delivery.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
 import com.example.delivery.service.DeliveryService;
@@ -23,7 +23,7 @@ class OrderProcessingListenerTest {
     private KafkaTemplate<String, OrderDTO> kafkaTemplate;
 
     @Mock
-    private OrderServiceClient orderServiceClient;
+    private OrderStatusPublisher orderStatusPublisher;
 
     @InjectMocks
     private OrderProcessingListener orderProcessingListener;
@@ -41,8 +41,8 @@ class OrderProcessingListenerTest {
         orderProcessingListener.handleNewOrder(orderDTO);
 
         verify(deliveryService, times(1)).processDelivery(orderDTO);
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(orderDTO.getId(), OrderStatus.DELIVERED, "Order successfully delivered");
+        verify(orderStatusPublisher, times(1))
+                .publish(orderDTO.getId(), OrderStatus.DELIVERED, "Order successfully delivered");
     }
 
     @Test
@@ -52,8 +52,8 @@ class OrderProcessingListenerTest {
         doThrow(new RuntimeException("Delivery error")).when(deliveryService).processDelivery(orderDTO);
         orderProcessingListener.handleNewOrder(orderDTO);
 
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(orderDTO.getId(), OrderStatus.DELIVERY_FAILED, "Failed to process delivery: Delivery error");
+        verify(orderStatusPublisher, times(1))
+                .publish(orderDTO.getId(), OrderStatus.DELIVERY_FAILED, "Failed to process delivery: Delivery error");
         verify(kafkaTemplate, times(1)).send(isNull(), anyString(), any(OrderDTO.class));
     }
 }
@@ -89,17 +89,25 @@ public class IntegrationTestOrderService {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(adminToken);
 
-        // Get all orders
-        ResponseEntity<List<Map<String, Object>>> response = config.getRestTemplate().exchange(
-            config.getOrderUrl(),
-            HttpMethod.GET,
-            new HttpEntity<>(headers),
-                new ParameterizedTypeReference<>() {
-                }
-        );
+        // Walk all order pages
+        String cursor = null;
+        do {
+            String url = cursor == null ? config.getOrderUrl() : config.getOrderUrl() + "?cursor=" + cursor;
+            ResponseEntity<Map<String, Object>> response = config.getRestTemplate().exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                    new ParameterizedTypeReference<>() {
+                    }
+            );
 
-        if (response.getBody() != null) {
-            response.getBody().forEach(order -> {
+            Map<String, Object> page = response.getBody();
+            if (page == null) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> orders = (List<Map<String, Object>>) page.get("items");
+            orders.forEach(order -> {
                 // Delete the order
                 config.getRestTemplate().exchange(
                     config.getOrderUrl() + "/" + order.get("id"),
@@ -108,6 +116,7 @@ public class IntegrationTestOrderService {
                     Void.class
                 );
             });
-        }
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
     }
 }
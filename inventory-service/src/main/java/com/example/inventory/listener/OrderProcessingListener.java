@@ -1,6 +1,6 @@
 package com.example.inventory.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
 import com.example.inventory.exception.ItemNotFoundException;
@@ -19,7 +19,7 @@ public class OrderProcessingListener {
     
     private final InventoryService inventoryService;
     private final KafkaTemplate<String, OrderDTO> kafkaTemplate;
-    private final OrderServiceClient orderServiceClient;
+    private final OrderStatusPublisher orderStatusPublisher;
 
     @Value("${kafka.topics.inventory-reserved}")
     private String inventoryReservedTopic;
@@ -38,16 +38,22 @@ public class OrderProcessingListener {
 
                 if (success) {
                     orderDTO.setStatus(OrderStatus.INVENTORY_DONE);
-                    orderServiceClient.updateOrderStatus(
+                    log.info("Inventory reserved successfully for order: {}, proceeding to delivery", orderDTO.getId());
+                    // Delivery reports DELIVERED next, which order-service only accepts after INVENTORY_DONE
+                    orderStatusPublisher.publish(
                         orderDTO.getId(),
                         OrderStatus.INVENTORY_DONE,
                         "Inventory reserved successfully"
-                    );
-                    log.info("Inventory reserved successfully for order: {}, proceeding to delivery", orderDTO.getId());
-                    kafkaTemplate.send(inventoryReservedTopic, orderDTO.getId().toString(), orderDTO);
+                    ).whenComplete((ignored, e) -> {
+                        if (e == null) {
+                            kafkaTemplate.send(inventoryReservedTopic, orderDTO.getId().toString(), orderDTO);
+                        } else {
+                            log.error("Order {} not handed to delivery: INVENTORY_DONE could not be published", orderDTO.getId());
+                        }
+                    });
                 } else {
                     orderDTO.setStatus(OrderStatus.INVENTORY_FAILED);
-                    orderServiceClient.updateOrderStatus(
+                    orderStatusPublisher.publish(
                             orderDTO.getId(),
                             OrderStatus.INVENTORY_FAILED,
                             "Inventory reservation failed - insufficient stock"
@@ -62,7 +68,7 @@ public class OrderProcessingListener {
 
         } catch (ItemNotFoundException e) {
             log.error("Item not found for order: {}. Error: {}", orderDTO.getId(), e.getMessage());
-            orderServiceClient.updateOrderStatus(
+            orderStatusPublisher.publish(
                     orderDTO.getId(),
                     OrderStatus.INVENTORY_FAILED,
                     "Inventory reservation failed - " + e.getMessage()
@@ -75,7 +81,7 @@ public class OrderProcessingListener {
 
             log.error(errorMessage);
             orderDTO.setStatus(OrderStatus.UNEXPECTED_FAILURE);
-            orderServiceClient.updateOrderStatus(
+            orderStatusPublisher.publish(
                 orderDTO.getId(),
                 OrderStatus.UNEXPECTED_FAILURE,
                 errorMessage
@@ -88,13 +94,25 @@ public class OrderProcessingListener {
     public void handleOrderRollback(OrderDTO orderDTO) {
         log.info("Received rollback request for order: {}", orderDTO.getId());
         
-        try {
-            if (orderDTO.getStatus() == OrderStatus.DELIVERY_FAILED) {
-                
-                inventoryService.restoreInventory(orderDTO);
-                log.info("Inventory restored for order: {}", orderDTO.getId());
+        if (orderDTO.getStatus() == OrderStatus.DELIVERY_FAILED) {
+            restore(orderDTO);
+        }
+    }
 
-            }
+    /**
+     * Held payments: the funds for an order with reserved stock could not be captured, so the
+     * order will not ship and its stock goes back.
+     */
+    @KafkaListener(topics = "${kafka.topics.capture-failed}")
+    public void handleCaptureFailed(OrderDTO orderDTO) {
+        log.info("Received failed capture for order: {}", orderDTO.getId());
+        restore(orderDTO);
+    }
+
+    private void restore(OrderDTO orderDTO) {
+        try {
+            inventoryService.restoreInventory(orderDTO);
+            log.info("Inventory restored for order: {}", orderDTO.getId());
         } catch (Exception e) {
             log.error("Error processing inventory restore for order: {}", orderDTO.getId(), e);
             orderDTO.setStatus(OrderStatus.UNEXPECTED_FAILURE);
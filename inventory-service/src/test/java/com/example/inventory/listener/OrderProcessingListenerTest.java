@@ -1,6 +1,6 @@
 package com.example.inventory.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
 import com.example.inventory.service.InventoryService;
@@ -13,6 +13,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,7 +27,7 @@ class OrderProcessingListenerTest {
     private KafkaTemplate<String, OrderDTO> kafkaTemplate;
 
     @Mock
-    private OrderServiceClient orderServiceClient;
+    private OrderStatusPublisher orderStatusPublisher;
 
     @InjectMocks
     private OrderProcessingListener orderProcessingListener;
@@ -35,6 +37,7 @@ class OrderProcessingListenerTest {
         // Initialize @Value properties
         ReflectionTestUtils.setField(orderProcessingListener, "inventoryReservedTopic", "inventory-reserved");
         ReflectionTestUtils.setField(orderProcessingListener, "inventoryFailedTopic", "inventory-failed");
+        lenient().when(orderStatusPublisher.publish(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -50,8 +53,8 @@ class OrderProcessingListenerTest {
 
         // Assert
         verify(inventoryService, times(1)).processInventory(orderDTO);
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(orderDTO.getId(), OrderStatus.INVENTORY_DONE, "Inventory reserved successfully");
+        verify(orderStatusPublisher, times(1))
+                .publish(orderDTO.getId(), OrderStatus.INVENTORY_DONE, "Inventory reserved successfully");
         verify(kafkaTemplate, times(1)).send(eq("inventory-reserved"), eq("1"), eq(orderDTO));
     }
 
@@ -67,8 +70,30 @@ class OrderProcessingListenerTest {
         orderProcessingListener.handleNewOrder(orderDTO);
 
         // Assert
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(orderDTO.getId(), OrderStatus.UNEXPECTED_FAILURE, "Error processing inventory for order: 1. Error: Inventory error");
+        verify(orderStatusPublisher, times(1))
+                .publish(orderDTO.getId(), OrderStatus.UNEXPECTED_FAILURE, "Error processing inventory for order: 1. Error: Inventory error");
         verify(kafkaTemplate, times(1)).send(eq("inventory-failed"), eq("1"), eq(orderDTO));
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleNewOrder_ShouldNotHandOverToDeliveryWhenInventoryDoneIsNotPublished() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.PAID);
+        when(inventoryService.processInventory(orderDTO)).thenReturn(true);
+        when(orderStatusPublisher.publish(1L, OrderStatus.INVENTORY_DONE, "Inventory reserved successfully"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        orderProcessingListener.handleNewOrder(orderDTO);
+
+        verify(kafkaTemplate, never()).send(any(), any(), any());
+    }
+
+    @Test
+    void handleCaptureFailed_ShouldRestoreReservedStock() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.UNEXPECTED_FAILURE);
+
+        orderProcessingListener.handleCaptureFailed(orderDTO);
+
+        verify(inventoryService).restoreInventory(orderDTO);
+        verify(kafkaTemplate, never()).send(any(), any(), any());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.order.config;
 
+import com.example.common.dto.OrderStatusUpdateDTO;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -27,10 +28,27 @@ public class KafkaConfig {
     @Value("${kafka.topics.order-created}")
     private String orderCreated;
 
+    @Value("${kafka.topics.order-status}")
+    private String orderStatus;
+
+    @Value("${kafka.partitions.order-created:1}")
+    private int orderCreatedPartitions;
+
+    @Value("${orders.status-updates.max-poll-records:500}")
+    private int statusUpdatesMaxPollRecords;
+
+    @Bean
+    public NewTopic orderStatusTopic() {
+        return TopicBuilder.name(orderStatus)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public NewTopic orderCreatedTopic() {
         return TopicBuilder.name(orderCreated)
-                .partitions(1)
+                .partitions(orderCreatedPartitions)
                 .replicas(1)
                 .build();
     }
@@ -57,6 +75,33 @@ public class KafkaConfig {
         return factory;
     }
 
+    @Bean
+    public ConsumerFactory<String, OrderStatusUpdateDTO> orderStatusConsumerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, "order-group");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, statusUpdatesMaxPollRecords);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        config.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.common.dto");
+        config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.common.dto.OrderStatusUpdateDTO");
+        config.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        return new DefaultKafkaConsumerFactory<>(config);
+    }
+
+    /**
+     * Delivers each poll as one list, so status updates are applied in bulk.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderStatusUpdateDTO> orderStatusListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderStatusUpdateDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderStatusConsumerFactory());
+        factory.setBatchListener(true);
+        return factory;
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -71,4 +116,21 @@ public class KafkaConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    @Bean
+    public ProducerFactory<String, String> outboxProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // Outbox payloads are already JSON, so they are sent as-is
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> outboxKafkaTemplate() {
+        return new KafkaTemplate<>(outboxProducerFactory());
+    }
 }
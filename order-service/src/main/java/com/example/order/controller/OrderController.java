@@ -1,23 +1,43 @@
 package com.example.order.controller;
 
+import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.order.dto.OrderBatchRequest;
+import com.example.order.dto.OrderBatchResult;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderPage;
 import com.example.order.dto.OrderRequest;
+import com.example.order.dto.OrderStats;
 import com.example.order.model.Order;
+import com.example.order.service.OrderBatchService;
+import com.example.order.service.OrderEventBus;
+import com.example.order.service.OrderExportService;
 import com.example.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -26,16 +46,52 @@ import java.util.Map;
 @Tag(name = "Order API", description = "API for managing orders")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final OrderExportService orderExportService;
+    private final OrderEventBus orderEventBus;
 
     @PostMapping
     @Operation(summary = "Create a new order")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Order created successfully"),
+        @ApiResponse(responseCode = "200", description = "Order created, or the original order for a reused Idempotency-Key"),
         @ApiResponse(responseCode = "400", description = "Invalid input data")
     })
-    public ResponseEntity<Order> createOrder(@Valid @RequestBody OrderRequest orderRequest) {
-        return ResponseEntity.ok(orderService.createOrder(orderRequest));
+    public ResponseEntity<Order> createOrder(
+            @Valid @RequestBody OrderRequest orderRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) @Size(max = 255) String idempotencyKey
+    ) {
+        try {
+            return ResponseEntity.ok(orderService.createOrder(orderRequest, idempotencyKey));
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyKey == null || !violates(e, Order.IDEMPOTENCY_KEY_CONSTRAINT)) {
+                throw e;
+            }
+            // Another request with the same key created the order first
+            return ResponseEntity.ok(orderService.getOrderByIdempotencyKey(idempotencyKey));
+        }
+    }
+
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return constraint.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create several orders in one request")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Per-order results; invalid orders are rejected individually"),
+        @ApiResponse(responseCode = "400", description = "Empty or oversized batch")
+    })
+    public ResponseEntity<OrderBatchResult> createOrders(@Valid @RequestBody OrderBatchRequest batchRequest) {
+        return ResponseEntity.ok(orderBatchService.createOrders(batchRequest));
     }
 
     @PatchMapping("/{orderId}")
@@ -43,7 +99,8 @@ public class OrderController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Order status updated successfully"),
         @ApiResponse(responseCode = "404", description = "Order not found"),
-        @ApiResponse(responseCode = "400", description = "Invalid status")
+        @ApiResponse(responseCode = "400", description = "Invalid status"),
+        @ApiResponse(responseCode = "409", description = "Transition not allowed from the current status")
     })
     public ResponseEntity<Order> updateOrderStatus(
             @PathVariable @NotNull Long orderId,
@@ -60,18 +117,83 @@ public class OrderController {
         @ApiResponse(responseCode = "200", description = "Order found"),
         @ApiResponse(responseCode = "404", description = "Order not found")
     })
-    public ResponseEntity<Order> getOrder(@PathVariable @NotNull Long orderId) {
+    public ResponseEntity<OrderDTO> getOrder(@PathVariable @NotNull Long orderId) {
         try {
-            Order order = orderService.getOrder(orderId);
+            OrderDTO order = orderService.getOrder(orderId);
             return ResponseEntity.ok(order);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream status changes of an order as Server-Sent Events")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Current status, then each transition; closed on a final status"),
+        @ApiResponse(responseCode = "404", description = "Order not found")
+    })
+    public SseEmitter streamOrderEvents(@PathVariable @NotNull Long orderId) {
+        return orderEventBus.subscribe(orderId, () -> orderService.getLatestStatus(orderId));
+    }
+
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    @Operation(summary = "List orders, newest first, using cursor pagination")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page of orders; nextCursor is null on the last page"),
+        @ApiResponse(responseCode = "400", description = "Invalid filter or cursor")
+    })
+    public ResponseEntity<OrderPage> getOrders(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit
+    ) {
+        OrderFilter filter = new OrderFilter(userId, status, createdFrom, createdTo);
+        return ResponseEntity.ok(orderService.getOrders(filter, cursor, limit));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream orders as newline-delimited JSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "One order summary per line, gzip-encoded when requested")
+    })
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        OrderFilter filter = new OrderFilter(userId, status, createdFrom, createdTo);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+                orderExportService.exportOrders(filter, gzipOut);
+                gzipOut.finish();
+            } else {
+                orderExportService.exportOrders(filter, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(NDJSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Order counts per status and orders created with their revenue per hour and per day")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Live aggregates, served from memory")
+    })
+    public ResponseEntity<OrderStats> getStatistics(
+            @RequestParam(defaultValue = "24") @Min(1) @Max(744) int hours,
+            @RequestParam(defaultValue = "7") @Min(1) @Max(31) int days
+    ) {
+        return ResponseEntity.ok(orderService.getStatistics(hours, days));
     }
 
     @DeleteMapping("/{orderId}")
@@ -0,0 +1,32 @@
+package com.example.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchItemResult {
+
+    public enum Outcome {
+        CREATED,
+        REJECTED
+    }
+
+    /** Position of the order in the request. */
+    private int index;
+    private Outcome outcome;
+    private Long orderId;
+    private List<String> errors;
+
+    public static OrderBatchItemResult created(int index, Long orderId) {
+        return new OrderBatchItemResult(index, Outcome.CREATED, orderId, List.of());
+    }
+
+    public static OrderBatchItemResult rejected(int index, List<String> errors) {
+        return new OrderBatchItemResult(index, Outcome.REJECTED, null, errors);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.order.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Orders are validated one by one by the service, so that an invalid order is reported in
+ * its result instead of rejecting the whole request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchRequest {
+    @NotEmpty(message = "Batch must contain at least one order")
+    @Size(max = 500, message = "Batch cannot contain more than 500 orders")
+    private List<OrderRequest> orders;
+}
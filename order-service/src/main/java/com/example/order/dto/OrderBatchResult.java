@@ -0,0 +1,16 @@
+package com.example.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResult {
+    private int created;
+    private int rejected;
+    private List<OrderBatchItemResult> results;
+}
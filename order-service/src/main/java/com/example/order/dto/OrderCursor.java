@@ -0,0 +1,46 @@
+package com.example.order.dto;
+
+import com.example.order.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in the (createdAt DESC, id DESC) order of the order listing.
+ */
+@Data
+@AllArgsConstructor
+public class OrderCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime createdAt;
+    private Long id;
+
+    public static OrderCursor after(OrderSummary last) {
+        return new OrderCursor(last.getCreatedAt(), last.getId());
+    }
+
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new OrderCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
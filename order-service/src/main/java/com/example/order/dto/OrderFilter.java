@@ -0,0 +1,20 @@
+package com.example.order.dto;
+
+import com.example.common.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFilter {
+    private Long userId;
+    private OrderStatus status;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+}
@@ -0,0 +1,15 @@
+package com.example.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPage {
+    private List<OrderSummary> items;
+    private String nextCursor;
+}
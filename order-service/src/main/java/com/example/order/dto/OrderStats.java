@@ -0,0 +1,18 @@
+package com.example.order.dto;
+
+import com.example.common.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStats {
+    private Map<OrderStatus, Long> countsByStatus;
+    private List<OrderStatsBucket> hourly;
+    private List<OrderStatsBucket> daily;
+}
@@ -0,0 +1,20 @@
+package com.example.order.dto;
+
+import com.example.common.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Orders created and their total amount within one hour or day starting at {@code start}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatsBucket {
+    private LocalDateTime start;
+    private long orders;
+    private Money revenue;
+}
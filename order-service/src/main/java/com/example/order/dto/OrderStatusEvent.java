@@ -0,0 +1,25 @@
+package com.example.order.dto;
+
+import com.example.common.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A recorded status transition. {@code id} is the id of the status history row, so it grows
+ * with every transition of the same order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusEvent {
+    private Long id;
+    private Long orderId;
+    private OrderStatus status;
+    private LocalDateTime timestamp;
+    private String comment;
+}
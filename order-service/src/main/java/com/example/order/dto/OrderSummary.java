@@ -0,0 +1,23 @@
+package com.example.order.dto;
+
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight projection of an order without its items and status history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private Long id;
+    private Long userId;
+    private Money totalAmount;
+    private OrderStatus status;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.example.order.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
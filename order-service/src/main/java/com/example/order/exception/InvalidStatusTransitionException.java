@@ -0,0 +1,19 @@
+package com.example.order.exception;
+
+import com.example.common.enums.OrderStatus;
+import lombok.Getter;
+
+@Getter
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    private final Long orderId;
+    private final OrderStatus currentStatus;
+    private final OrderStatus requestedStatus;
+
+    public InvalidStatusTransitionException(Long orderId, OrderStatus currentStatus, OrderStatus requestedStatus) {
+        super("Order " + orderId + " cannot move from " + currentStatus + " to " + requestedStatus);
+        this.orderId = orderId;
+        this.currentStatus = currentStatus;
+        this.requestedStatus = requestedStatus;
+    }
+}
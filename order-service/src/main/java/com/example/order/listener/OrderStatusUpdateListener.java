@@ -0,0 +1,38 @@
+package com.example.order.listener;
+
+import com.example.common.dto.OrderStatusUpdateDTO;
+import com.example.order.service.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Applies status updates reported by payment, inventory and delivery services. Updates are keyed
+ * by order id, so one poll holds each order's updates in the order they were published.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderStatusUpdateListener {
+
+    private final OrderService orderService;
+
+    @KafkaListener(topics = "${kafka.topics.order-status}", containerFactory = "orderStatusListenerContainerFactory")
+    public void handleStatusUpdates(List<OrderStatusUpdateDTO> updates) {
+        // Records that failed to deserialize arrive as null values
+        List<OrderStatusUpdateDTO> valid = updates.stream()
+                .filter(Objects::nonNull)
+                .filter(update -> update.getOrderId() != null && update.getStatus() != null)
+                .toList();
+        if (valid.size() < updates.size()) {
+            log.warn("Skipping {} malformed order status updates", updates.size() - valid.size());
+        }
+        if (!valid.isEmpty()) {
+            orderService.applyStatusUpdates(valid);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.example.order.mapper;
 import com.example.common.dto.OrderDTO;
 import com.example.common.dto.OrderItemDTO;
 import com.example.common.dto.StatusHistoryDTO;
+import com.example.order.dto.OrderStatusEvent;
+import com.example.order.model.OrderStatusHistory;
 import org.springframework.stereotype.Component;
 
 
@@ -25,6 +27,16 @@ public class OrderMapper {
                 .build();
     }
     
+    public OrderStatusEvent toEvent(OrderStatusHistory history) {
+        return OrderStatusEvent.builder()
+                .id(history.getId())
+                .orderId(history.getOrder().getId())
+                .status(history.getStatus())
+                .timestamp(history.getTimestamp())
+                .comment(history.getComment())
+                .build();
+    }
+
     private OrderItemDTO toDto(OrderItemDTO item) {
         return new OrderItemDTO(
                 item.getProductId(),
@@ -33,7 +45,7 @@ public class OrderMapper {
         );
     }
     
-    private StatusHistoryDTO toDto(StatusHistoryDTO history) {
+    private StatusHistoryDTO toDto(OrderStatusHistory history) {
         return new StatusHistoryDTO(
                 history.getStatus(),
                 history.getTimestamp(),
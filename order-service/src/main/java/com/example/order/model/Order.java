@@ -1,39 +1,59 @@
 package com.example.order.model;
 
 import com.example.common.dto.OrderItemDTO;
-import com.example.common.dto.StatusHistoryDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.common.money.MoneyConverter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_orders_user_id_created_at_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_orders_status_created_at_id", columnList = "status, created_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = Order.IDEMPOTENCY_KEY_CONSTRAINT, columnNames = {"user_id", "idempotency_key"})
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
+    public static final String IDEMPOTENCY_KEY_CONSTRAINT = "uk_orders_user_id_idempotency_key";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     private Long userId;
-    private BigDecimal totalAmount;
+    @Convert(converter = MoneyConverter.class)
+    private Money totalAmount;
     private LocalDateTime createdAt;
     
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
+
+    // Client-supplied Idempotency-Key header, unique per user; null when the client sent none
+    @JsonIgnore
+    private String idempotencyKey;
     
+    // Lazy collections of several orders are loaded together instead of one select per order
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "order_items", joinColumns = @JoinColumn(name = "order_id"))
     private List<OrderItemDTO> items;
     
-    @ElementCollection
-    @CollectionTable(name = "order_status_history", joinColumns = @JoinColumn(name = "order_id"))
-    private List<StatusHistoryDTO> statusHistoryDTO;
+    @OneToMany(mappedBy = "order", cascade = {CascadeType.PERSIST, CascadeType.REMOVE})
+    @OrderBy("id")
+    @BatchSize(size = 50)
+    private List<OrderStatusHistory> statusHistoryDTO;
 }
@@ -0,0 +1,43 @@
+package com.example.order.model;
+
+import com.example.common.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * One status transition of an order. Rows are only ever inserted, so a status change costs a
+ * single INSERT regardless of how long the history already is.
+ */
+@Entity
+@Table(name = "order_status_history", indexes = {
+        @Index(name = "idx_order_status_history_order_id_id", columnList = "order_id, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    // Stored as ordinal, like the rows written before history became an entity
+    private OrderStatus status;
+    private LocalDateTime timestamp;
+    private String comment;
+}
@@ -0,0 +1,165 @@
+package com.example.order.repository;
+
+import com.example.common.enums.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves orders with their items and status history into archive tables that are
+ * range-partitioned by month of {@code created_at}. Hibernate does not manage these tables:
+ * they are created here, and monthly partitions are added before rows are moved into them.
+ * Moves run in the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private static final List<String> CREATE_TABLES = List.of(
+            """
+            CREATE TABLE IF NOT EXISTS orders_archive (
+                id bigint NOT NULL,
+                user_id bigint,
+                total_amount numeric(38, 2),
+                created_at timestamp(6) NOT NULL,
+                status varchar(255),
+                idempotency_key varchar(255),
+                archived_at timestamp(6) NOT NULL DEFAULT now(),
+                PRIMARY KEY (id, created_at)
+            ) PARTITION BY RANGE (created_at)""",
+            """
+            CREATE TABLE IF NOT EXISTS order_items_archive (
+                order_id bigint NOT NULL,
+                order_created_at timestamp(6) NOT NULL,
+                product_id bigint,
+                quantity integer,
+                price numeric(38, 2)
+            ) PARTITION BY RANGE (order_created_at)""",
+            """
+            CREATE TABLE IF NOT EXISTS order_status_history_archive (
+                id bigint NOT NULL,
+                order_id bigint NOT NULL,
+                order_created_at timestamp(6) NOT NULL,
+                status smallint,
+                timestamp timestamp(6),
+                comment varchar(255),
+                PRIMARY KEY (id, order_created_at)
+            ) PARTITION BY RANGE (order_created_at)""",
+            "CREATE INDEX IF NOT EXISTS idx_order_items_archive_order_id ON order_items_archive (order_id)",
+            "CREATE INDEX IF NOT EXISTS idx_order_status_history_archive_order_id ON order_status_history_archive (order_id, id)");
+
+    private static final List<String> ARCHIVE_TABLES =
+            List.of("orders_archive", "order_items_archive", "order_status_history_archive");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String FIND_OLDEST =
+            "SELECT min(created_at) FROM orders WHERE status = ANY (?) AND created_at < ?";
+
+    // SKIP LOCKED leaves orders that are being updated for a later run instead of waiting on them
+    private static final String LOCK_BATCH =
+            "SELECT id FROM orders WHERE status = ANY (?) AND created_at < ? "
+                    + "ORDER BY created_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String MOVE_ITEMS = """
+            WITH moved AS (
+                DELETE FROM order_items i USING orders o
+                WHERE i.order_id = o.id AND o.id = ANY (?)
+                RETURNING i.order_id, o.created_at, i.product_id, i.quantity, i.price)
+            INSERT INTO order_items_archive (order_id, order_created_at, product_id, quantity, price)
+            SELECT order_id, created_at, product_id, quantity, price FROM moved""";
+
+    private static final String MOVE_HISTORY = """
+            WITH moved AS (
+                DELETE FROM order_status_history h USING orders o
+                WHERE h.order_id = o.id AND o.id = ANY (?)
+                RETURNING h.id, h.order_id, o.created_at, h.status, h.timestamp, h.comment)
+            INSERT INTO order_status_history_archive (id, order_id, order_created_at, status, timestamp, comment)
+            SELECT id, order_id, created_at, status, timestamp, comment FROM moved""";
+
+    private static final String MOVE_ORDERS = """
+            WITH moved AS (
+                DELETE FROM orders WHERE id = ANY (?)
+                RETURNING id, user_id, total_amount, created_at, status, idempotency_key)
+            INSERT INTO orders_archive (id, user_id, total_amount, created_at, status, idempotency_key)
+            SELECT id, user_id, total_amount, created_at, status, idempotency_key FROM moved""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTables() {
+        CREATE_TABLES.forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * Creates the monthly partitions of every archive table from {@code from} to {@code to},
+     * both inclusive, skipping those that exist.
+     */
+    public void createPartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            for (String table : ARCHIVE_TABLES) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_" + month.format(PARTITION_SUFFIX)
+                        + " PARTITION OF " + table
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            }
+        }
+    }
+
+    public Optional<LocalDateTime> findOldestCreatedAt(Collection<OrderStatus> statuses, LocalDateTime createdBefore) {
+        Timestamp oldest = jdbcTemplate.query(FIND_OLDEST,
+                ps -> {
+                    ps.setArray(1, statusArray(ps.getConnection(), statuses));
+                    ps.setObject(2, createdBefore);
+                },
+                rs -> rs.next() ? rs.getTimestamp(1) : null);
+        return Optional.ofNullable(oldest).map(Timestamp::toLocalDateTime);
+    }
+
+    /**
+     * Locks up to {@code limit} of the oldest orders in one of {@code statuses} created before
+     * {@code createdBefore}, and returns their ids.
+     */
+    public List<Long> lockBatch(Collection<OrderStatus> statuses, LocalDateTime createdBefore, int limit) {
+        return jdbcTemplate.query(LOCK_BATCH,
+                ps -> {
+                    ps.setArray(1, statusArray(ps.getConnection(), statuses));
+                    ps.setObject(2, createdBefore);
+                    ps.setInt(3, limit);
+                },
+                (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Moves the orders, items and history rows of {@code orderIds} into the archive tables.
+     * The partitions for the orders' months must exist.
+     *
+     * @return the number of orders moved
+     */
+    public int moveOrders(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        // Children first: they are joined to orders for the partition key, and reference it
+        move(MOVE_ITEMS, orderIds);
+        move(MOVE_HISTORY, orderIds);
+        return move(MOVE_ORDERS, orderIds);
+    }
+
+    private int move(String sql, List<Long> orderIds) {
+        return jdbcTemplate.update(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())));
+    }
+
+    private static Array statusArray(Connection connection, Collection<OrderStatus> statuses) throws SQLException {
+        return connection.createArrayOf("varchar", statuses.stream().map(OrderStatus::name).toArray());
+    }
+}
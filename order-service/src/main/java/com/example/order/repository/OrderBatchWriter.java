@@ -0,0 +1,135 @@
+package com.example.order.repository;
+
+import com.example.common.dto.OrderItemDTO;
+import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+import com.example.order.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Inserts new orders with JDBC batching. Hibernate cannot batch inserts of IDENTITY entities,
+ * so bulk creation bypasses the persistence context and writes the tables directly. Runs in
+ * the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchWriter {
+
+    private static final String INSERT_ORDER =
+            "INSERT INTO orders (user_id, total_amount, created_at, status) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ITEM =
+            "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_HISTORY =
+            "INSERT INTO order_status_history (order_id, status, timestamp, comment) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_OUTBOX =
+            "INSERT INTO outbox_events (aggregate_id, topic, message_key, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the orders, their items and status history, and sets the generated order ids.
+     */
+    public void insertOrders(List<Order> orders) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_ORDER, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Order order = orders.get(i);
+                        ps.setLong(1, order.getUserId());
+                        ps.setBigDecimal(2, order.getTotalAmount().toBigDecimal());
+                        ps.setObject(3, order.getCreatedAt());
+                        ps.setString(4, order.getStatus().name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return orders.size();
+                    }
+                },
+                keys);
+
+        setGeneratedIds(keys, orders.size(), (i, id) -> orders.get(i).setId(id));
+
+        List<ItemRow> items = orders.stream()
+                .flatMap(order -> order.getItems().stream().map(item -> new ItemRow(order.getId(), item)))
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_ITEM, items, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.orderId());
+            ps.setLong(2, row.item().getProductId());
+            ps.setInt(3, row.item().getQuantity());
+            ps.setBigDecimal(4, row.item().getPrice().toBigDecimal());
+        });
+
+        insertHistory(orders.stream()
+                .flatMap(order -> order.getStatusHistoryDTO().stream())
+                .toList());
+    }
+
+    /**
+     * Inserts status history rows and sets their generated ids.
+     */
+    public void insertHistory(List<OrderStatusHistory> history) {
+        if (history.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_HISTORY, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderStatusHistory entry = history.get(i);
+                        ps.setLong(1, entry.getOrder().getId());
+                        // Ordinal, matching the mapping of OrderStatusHistory.status
+                        ps.setInt(2, entry.getStatus().ordinal());
+                        ps.setObject(3, entry.getTimestamp());
+                        ps.setString(4, entry.getComment());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return history.size();
+                    }
+                },
+                keys);
+        setGeneratedIds(keys, history.size(), (i, id) -> history.get(i).setId(id));
+    }
+
+    public void insertOutboxEvents(List<OutboxEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX, events, BATCH_SIZE, (ps, event) -> {
+            ps.setLong(1, event.getAggregateId());
+            ps.setString(2, event.getTopic());
+            ps.setString(3, event.getMessageKey());
+            ps.setString(4, event.getPayload());
+            ps.setObject(5, event.getCreatedAt());
+        });
+    }
+
+    private static void setGeneratedIds(KeyHolder keys, int expected, BiConsumer<Integer, Long> setter) {
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != expected) {
+            throw new IllegalStateException("Expected " + expected + " generated keys, got " + generated.size());
+        }
+        for (int i = 0; i < expected; i++) {
+            setter.accept(i, ((Number) generated.get(i).get("id")).longValue());
+        }
+    }
+
+    private record ItemRow(Long orderId, OrderItemDTO item) {
+    }
+}
@@ -1,9 +1,51 @@
 package com.example.order.repository;
 
+import com.example.common.enums.OrderStatus;
 import com.example.order.model.Order;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    /**
+     * Loads an order with its items joined. Only one bag can be fetch-joined, so the status
+     * history is initialized with a second select by the caller.
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Moves an order to {@code status} only if it is currently in one of {@code expected}.
+     * The check and the write are one statement, so concurrent callers cannot overwrite a
+     * newer status.
+     *
+     * @return 1 if the transition was applied, 0 if the order is missing or in another status
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id AND o.status IN :expected")
+    int updateStatusIfIn(Long id, OrderStatus status, Collection<OrderStatus> expected);
+
+    @Query("SELECT o.status FROM Order o WHERE o.id = :id")
+    Optional<OrderStatus> findStatusById(Long id);
+
+    /**
+     * Loads and row-locks orders in id order, so concurrent batches touching the same orders
+     * wait for each other instead of deadlocking.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<Order> lockAllById(Collection<Long> ids);
 }
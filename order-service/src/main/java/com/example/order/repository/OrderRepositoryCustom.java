@@ -0,0 +1,24 @@
+package com.example.order.repository;
+
+import com.example.order.dto.OrderCursor;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderSummary;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} order summaries matching the filter, newest first,
+     * strictly after the given keyset position ({@code null} for the first page).
+     */
+    List<OrderSummary> findSummaries(OrderFilter filter, OrderCursor after, int limit);
+
+    /**
+     * Streams every order summary matching the filter in id order through a server-side
+     * cursor that fetches {@code fetchSize} rows at a time. Must be consumed and closed
+     * inside a transaction.
+     */
+    Stream<OrderSummary> streamSummaries(OrderFilter filter, int fetchSize);
+}
@@ -0,0 +1,92 @@
+package com.example.order.repository;
+
+import com.example.order.dto.OrderCursor;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderSummary;
+import com.example.order.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findSummaries(OrderFilter filter, OrderCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummary> query = cb.createQuery(OrderSummary.class);
+        Root<Order> order = query.from(Order.class);
+        Path<LocalDateTime> createdAt = order.get("createdAt");
+        Path<Long> id = order.get("id");
+
+        query.select(summary(cb, order));
+
+        List<Predicate> predicates = filterPredicates(cb, order, filter);
+        if (after != null) {
+            // The redundant upper bound lets Postgres use it as an index condition
+            predicates.add(cb.lessThanOrEqualTo(createdAt, after.getCreatedAt()));
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, after.getCreatedAt()),
+                    cb.and(cb.equal(createdAt, after.getCreatedAt()), cb.lessThan(id, after.getId()))));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<OrderSummary> streamSummaries(OrderFilter filter, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummary> query = cb.createQuery(OrderSummary.class);
+        Root<Order> order = query.from(Order.class);
+
+        query.select(summary(cb, order));
+        query.where(filterPredicates(cb, order, filter).toArray(Predicate[]::new));
+        query.orderBy(cb.asc(order.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private CompoundSelection<OrderSummary> summary(CriteriaBuilder cb, Root<Order> order) {
+        return cb.construct(OrderSummary.class,
+                order.get("id"),
+                order.get("userId"),
+                order.get("totalAmount"),
+                order.get("status"),
+                order.get("createdAt"));
+    }
+
+    private List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Order> order, OrderFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter == null) {
+            return predicates;
+        }
+        if (filter.getUserId() != null) {
+            predicates.add(cb.equal(order.get("userId"), filter.getUserId()));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(order.get("status"), filter.getStatus()));
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.get("createdAt"), filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(order.get("createdAt"), filter.getCreatedTo()));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.order.repository;
+
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates over all orders, including those moved to the archive by
+ * {@link OrderArchiveRepository}, used to rebuild the in-memory statistics.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderStatisticsRepository {
+
+    private static final String ARCHIVE_EXISTS = "SELECT to_regclass('orders_archive') IS NOT NULL";
+
+    private static final String COUNT_BY_STATUS = "SELECT status, count(*) FROM %s GROUP BY status";
+
+    private static final String HOURLY_TOTALS =
+            "SELECT date_trunc('hour', created_at), count(*), coalesce(sum(total_amount), 0) FROM %s "
+                    + "WHERE created_at >= ? GROUP BY 1";
+
+    public record HourlyTotal(LocalDateTime hour, long orders, Money revenue) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<OrderStatus, Long> countByStatus() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (String table : tables()) {
+            jdbcTemplate.query(COUNT_BY_STATUS.formatted(table), rs -> {
+                String status = rs.getString(1);
+                if (status != null) {
+                    counts.merge(OrderStatus.valueOf(status), rs.getLong(2), Long::sum);
+                }
+            });
+        }
+        return counts;
+    }
+
+    /**
+     * Order count and revenue per hour of creation, for orders created at or after {@code since}.
+     * An hour may appear once per table.
+     */
+    public List<HourlyTotal> hourlyTotalsSince(LocalDateTime since) {
+        return tables().stream()
+                .flatMap(table -> jdbcTemplate.query(HOURLY_TOTALS.formatted(table),
+                        (rs, rowNum) -> new HourlyTotal(
+                                rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), Money.of(rs.getBigDecimal(3))),
+                        since).stream())
+                .toList();
+    }
+
+    private List<String> tables() {
+        Boolean archiveExists = jdbcTemplate.queryForObject(ARCHIVE_EXISTS, Boolean.class);
+        return Boolean.TRUE.equals(archiveExists) ? List.of("orders", "orders_archive") : List.of("orders");
+    }
+}
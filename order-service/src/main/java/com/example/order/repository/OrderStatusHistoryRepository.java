@@ -0,0 +1,13 @@
+package com.example.order.repository;
+
+import com.example.order.model.OrderStatusHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OrderStatusHistoryRepository extends JpaRepository<OrderStatusHistory, Long> {
+
+    Optional<OrderStatusHistory> findFirstByOrderIdOrderByIdDesc(Long orderId);
+}
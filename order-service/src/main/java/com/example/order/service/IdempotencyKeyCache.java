@@ -0,0 +1,43 @@
+package com.example.order.service;
+
+import com.example.common.transaction.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Recently used idempotency keys and the orders they created. A hit answers a retry without
+ * touching the database; a miss falls back to the unique constraint on orders.
+ */
+@Component
+public class IdempotencyKeyCache {
+
+    private final Cache<Key, Long> orderIds;
+
+    public IdempotencyKeyCache(@Value("${orders.idempotency.cache-size:50000}") long cacheSize,
+                               @Value("${orders.idempotency.cache-ttl:24h}") Duration cacheTtl) {
+        this.orderIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public Long find(Long userId, String idempotencyKey) {
+        return orderIds.getIfPresent(new Key(userId, idempotencyKey));
+    }
+
+    /**
+     * Remembers the key once the surrounding transaction commits, so a rolled back order is never
+     * served as a replay.
+     */
+    public void rememberAfterCommit(Long userId, String idempotencyKey, Long orderId) {
+        Key key = new Key(userId, idempotencyKey);
+        AfterCommit.run(() -> orderIds.put(key, orderId));
+    }
+
+    private record Key(Long userId, String idempotencyKey) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.order.repository.OrderArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves terminal orders older than {@code orders.archive.min-age} out of the hot order tables
+ * into the monthly archive partitions. Each chunk is locked, moved and committed in its own
+ * short transaction, so the job never holds locks on more than one chunk of orders.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.archive.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OrderArchiver {
+
+    static final Set<OrderStatus> ARCHIVABLE_STATUSES = Arrays.stream(OrderStatus.values())
+            .filter(OrderStatus::isTerminal)
+            .collect(Collectors.toCollection(() -> EnumSet.noneOf(OrderStatus.class)));
+
+    private final OrderArchiveRepository archiveRepository;
+    private final OrderReadCache orderReadCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private volatile boolean tablesCreated;
+
+    public OrderArchiver(OrderArchiveRepository archiveRepository,
+                         OrderReadCache orderReadCache,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${orders.archive.min-age:7d}") Duration minAge,
+                         @Value("${orders.archive.batch-size:500}") int batchSize,
+                         @Value("${orders.archive.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.archiveRepository = archiveRepository;
+        this.orderReadCache = orderReadCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${orders.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${orders.archive.interval-ms:3600000}")
+    public void archive() {
+        archiveCreatedBefore(LocalDateTime.now().minus(minAge));
+    }
+
+    /**
+     * @return the number of orders moved to the archive
+     */
+    int archiveCreatedBefore(LocalDateTime cutoff) {
+        if (!tablesCreated) {
+            archiveRepository.createTables();
+            tablesCreated = true;
+        }
+        Optional<LocalDateTime> oldest = archiveRepository.findOldestCreatedAt(ARCHIVABLE_STATUSES, cutoff);
+        if (oldest.isEmpty()) {
+            return 0;
+        }
+        archiveRepository.createPartitions(YearMonth.from(oldest.get()), YearMonth.from(cutoff));
+
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            archived += moved != null ? moved : 0;
+            if (moved == null || moved < batchSize) {
+                break;
+            }
+        }
+        log.info("Archived {} orders created before {}", archived, cutoff);
+        return archived;
+    }
+
+    int archiveBatch(LocalDateTime cutoff) {
+        List<Long> orderIds = archiveRepository.lockBatch(ARCHIVABLE_STATUSES, cutoff, batchSize);
+        int moved = archiveRepository.moveOrders(orderIds);
+        orderIds.forEach(orderReadCache::invalidateAfterCommit);
+        return moved;
+    }
+}
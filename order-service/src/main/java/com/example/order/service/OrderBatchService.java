@@ -0,0 +1,89 @@
+package com.example.order.service;
+
+import com.example.order.dto.OrderBatchItemResult;
+import com.example.order.dto.OrderBatchRequest;
+import com.example.order.dto.OrderBatchResult;
+import com.example.order.dto.OrderRequest;
+import com.example.order.mapper.OrderMapper;
+import com.example.order.model.Order;
+import com.example.order.repository.OrderBatchWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates many orders in one transaction: valid orders are written with batched inserts and
+ * their order-created events are enqueued together, so {@link OutboxRelay} publishes them with
+ * a single producer flush per relay batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBatchService {
+
+    private final OrderBatchWriter orderBatchWriter;
+    private final OutboxService outboxService;
+    private final OrderMapper orderMapper;
+    private final Validator validator;
+    private final OrderStatistics orderStatistics;
+
+    @Value("${kafka.topics.order-created}")
+    private String orderCreated;
+
+    @Transactional
+    public OrderBatchResult createOrders(OrderBatchRequest batchRequest) {
+        Long userId = OrderService.getCurrentUserId();
+        List<OrderRequest> requests = batchRequest.getOrders();
+        List<OrderBatchItemResult> results = new ArrayList<>(requests.size());
+        List<Order> orders = new ArrayList<>();
+        List<Integer> orderIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            List<String> errors = validate(requests.get(i));
+            if (errors.isEmpty()) {
+                orders.add(OrderService.newOrder(userId, requests.get(i)));
+                orderIndexes.add(i);
+            } else {
+                results.add(OrderBatchItemResult.rejected(i, errors));
+            }
+        }
+
+        if (!orders.isEmpty()) {
+            orderBatchWriter.insertOrders(orders);
+            Map<Long, Object> payloads = new LinkedHashMap<>();
+            orders.forEach(order -> payloads.put(order.getId(), orderMapper.toDto(order)));
+            outboxService.enqueueAll(orderCreated, userId.toString(), payloads);
+            orderStatistics.recordCreatedAfterCommit(orders);
+            for (int i = 0; i < orders.size(); i++) {
+                results.add(OrderBatchItemResult.created(orderIndexes.get(i), orders.get(i).getId()));
+            }
+        }
+
+        results.sort(Comparator.comparingInt(OrderBatchItemResult::getIndex));
+        log.info("Batch for user {}: {} orders created, {} rejected",
+                userId, orders.size(), requests.size() - orders.size());
+        return new OrderBatchResult(orders.size(), requests.size() - orders.size(), results);
+    }
+
+    private List<String> validate(OrderRequest request) {
+        if (request == null) {
+            return List.of("order: must not be null");
+        }
+        Set<ConstraintViolation<OrderRequest>> violations = validator.validate(request);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.order.service;
+
+import com.example.order.dto.OrderStatusEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of order status transitions to SSE subscribers.
+ * <p>
+ * Each subscriber owns a small bounded buffer. A slow client never blocks the publisher: when its
+ * buffer is full the oldest pending event is dropped, since only the latest status matters.
+ * Buffers are drained by a shared pool, so idle subscribers hold no thread.
+ */
+@Component
+@Slf4j
+public class OrderEventBus {
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final Executor dispatcher;
+
+    @Autowired
+    public OrderEventBus(@Value("${orders.events.buffer-size:16}") int bufferSize,
+                         @Value("${orders.events.timeout-ms:600000}") long timeoutMs,
+                         @Value("${orders.events.dispatch-threads:4}") int dispatchThreads) {
+        this(bufferSize, timeoutMs, Executors.newFixedThreadPool(dispatchThreads));
+    }
+
+    OrderEventBus(int bufferSize, long timeoutMs, Executor dispatcher) {
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Registers a subscriber for one order and queues the current status as its first event.
+     * The snapshot is read after registering, so no transition committed in between is lost.
+     */
+    public SseEmitter subscribe(Long orderId, Supplier<OrderStatusEvent> snapshot) {
+        Subscriber subscriber = new Subscriber(orderId, createEmitter());
+        subscribers.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        try {
+            subscriber.offer(snapshot.get());
+        } catch (RuntimeException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publish(OrderStatusEvent event) {
+        Set<Subscriber> watchers = subscribers.get(event.getOrderId());
+        if (watchers != null) {
+            watchers.forEach(subscriber -> subscriber.offer(event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(watchers -> watchers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+        if (dispatcher instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    int subscriberCount(Long orderId) {
+        Set<Subscriber> watchers = subscribers.get(orderId);
+        return watchers == null ? 0 : watchers.size();
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.orderId, (id, watchers) -> {
+            watchers.remove(subscriber);
+            return watchers.isEmpty() ? null : watchers;
+        });
+    }
+
+    private final class Subscriber {
+        private final Long orderId;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<OrderStatusEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Touched only by the draining task, which never runs concurrently with itself
+        private long lastSentId = Long.MIN_VALUE;
+        private boolean closed;
+
+        private Subscriber(Long orderId, SseEmitter emitter) {
+            this.orderId = orderId;
+            this.emitter = emitter;
+        }
+
+        private void offer(OrderStatusEvent event) {
+            while (!buffer.offer(event)) {
+                buffer.poll();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                OrderStatusEvent event;
+                while (!closed && (event = buffer.poll()) != null) {
+                    send(event);
+                }
+            } finally {
+                draining.set(false);
+            }
+            // An event offered after the last poll but before the flag was cleared
+            if (!closed && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(OrderStatusEvent event) {
+            // The snapshot and a concurrent transition may arrive in either order
+            if (event.getId() != null && event.getId() <= lastSentId) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.getId()))
+                        .name("status")
+                        .data(event));
+                lastSentId = event.getId() != null ? event.getId() : lastSentId;
+                if (event.getStatus().isTerminal()) {
+                    close();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping subscriber of order {}: {}", orderId, e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void close() {
+            closed = true;
+            buffer.clear();
+            unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.order.service;
+
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderSummary;
+import com.example.order.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes orders as newline-delimited JSON straight from a database cursor, so memory use
+ * does not depend on the number of exported rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${orders.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Transactional(readOnly = true)
+    public long exportOrders(OrderFilter filter, OutputStream out) throws IOException {
+        // Let the generator buffer rows instead of flushing the response after each one
+        ObjectWriter writer = objectMapper.writerFor(OrderSummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long exported = 0;
+        try (Stream<OrderSummary> rows = orderRepository.streamSummaries(filter, fetchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by newlines only, not by the default space between root values
+            generator.setRootValueSeparator(null);
+            Iterator<OrderSummary> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                exported++;
+            }
+            generator.flush();
+        }
+        log.info("Exported {} orders for filter {}", exported, filter);
+        return exported;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.order.service;
+
+import com.example.common.dto.OrderDTO;
+import com.example.common.transaction.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of the order read model. Writers invalidate entries after commit;
+ * Caffeine serializes an invalidation with a load of the same key, so a load that read the old
+ * row cannot outlive the write that changed it.
+ */
+@Component
+public class OrderReadCache {
+
+    static final String CACHE_NAME = "orders";
+
+    private final Cache<Long, OrderDTO> orders;
+    private final TransactionTemplate readTransaction;
+
+    public OrderReadCache(MeterRegistry meterRegistry,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${orders.cache.max-size:10000}") long maxSize,
+                          @Value("${orders.cache.ttl:5m}") Duration ttl) {
+        this.orders = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        CaffeineCacheMetrics.monitor(meterRegistry, orders, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached order, loading it in a read-only transaction on a miss. Hits do not
+     * touch the database or the connection pool.
+     */
+    public OrderDTO get(Long orderId, Function<Long, OrderDTO> loader) {
+        return orders.get(orderId, id -> readTransaction.execute(status -> loader.apply(id)));
+    }
+
+    public void putAfterCommit(OrderDTO order) {
+        AfterCommit.run(() -> orders.put(order.getId(), order));
+    }
+
+    public void invalidateAfterCommit(Long orderId) {
+        AfterCommit.run(() -> orders.invalidate(orderId));
+    }
+}
@@ -1,27 +1,45 @@
 package com.example.order.service;
 
+import com.example.common.dto.OrderDTO;
 import com.example.common.dto.OrderItemDTO;
-import com.example.common.dto.StatusHistoryDTO;
+import com.example.common.dto.OrderStatusUpdateDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderCursor;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderPage;
 import com.example.order.dto.OrderRequest;
+import com.example.order.dto.OrderStats;
+import com.example.order.dto.OrderStatusEvent;
+import com.example.order.dto.OrderSummary;
+import com.example.order.exception.InvalidStatusTransitionException;
 import com.example.order.exception.OrderNotFoundException;
 import com.example.order.mapper.OrderMapper;
 import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+import com.example.order.repository.OrderBatchWriter;
 import com.example.order.repository.OrderRepository;
+import com.example.order.repository.OrderStatusHistoryRepository;
 import com.example.order.security.CustomUserDetails;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -30,7 +48,15 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderStatusHistoryRepository statusHistoryRepository;
+    private final OrderBatchWriter orderBatchWriter;
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyKeyCache idempotencyKeyCache;
+    private final OrderReadCache orderReadCache;
+    private final OrderStatusMetrics statusMetrics;
+    private final OrderStatistics orderStatistics;
 
     private final OrderMapper orderMapper;
 
@@ -39,69 +65,165 @@ public class OrderService {
 
     @Transactional
     public Order createOrder(OrderRequest orderRequest) {
+        return createOrder(orderRequest, null);
+    }
+
+    /**
+     * Creates an order, or returns the order already created with the same idempotency key.
+     * A key that is not cached is not looked up: the insert itself fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException} on a duplicate, and the
+     * caller then fetches the original with {@link #getOrderByIdempotencyKey}.
+     */
+    @Transactional
+    public Order createOrder(OrderRequest orderRequest, String idempotencyKey) {
         Long userId = getCurrentUserId();
+        if (idempotencyKey != null) {
+            Long existingOrderId = idempotencyKeyCache.find(userId, idempotencyKey);
+            if (existingOrderId != null) {
+                log.info("Replaying order {} for idempotency key {}", existingOrderId, idempotencyKey);
+                return loadOrder(existingOrderId);
+            }
+        }
         log.info("Creating new order for user: {}", userId);
-        Order order = new Order();
-        order.setUserId(userId);
-        order.setStatus(OrderStatus.REGISTERED);
-        order.setCreatedAt(LocalDateTime.now());
-        order.setItems(orderRequest.getItems().stream()
-                .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), item.getPrice()))
-                .toList());
-        order.setTotalAmount(calculateTotalAmount(order.getItems()));
-        order.setStatusHistoryDTO(new ArrayList<>());
-        order.getStatusHistoryDTO().add(new StatusHistoryDTO(OrderStatus.REGISTERED, LocalDateTime.now(), "Order created"));
-
-        order = orderRepository.save(order);
-        
-        // Send to payment service for processing
-        log.info("Attempting to send order {} to topic {}", order.getId(), orderCreated);
-        try {
-            kafkaTemplate.send(orderCreated, orderMapper.toDto(order)).get();
-            log.info("Successfully sent order {} to topic {}", order.getId(), orderCreated);
-        } catch (Exception e) {
-            log.error("Failed to send order {} to topic {}. Error: {}", order.getId(), orderCreated, e.getMessage(), e);
+        Order newOrder = newOrder(userId, orderRequest);
+        newOrder.setIdempotencyKey(idempotencyKey);
+        Order order = orderRepository.save(newOrder);
+        if (idempotencyKey != null) {
+            idempotencyKeyCache.rememberAfterCommit(userId, idempotencyKey, order.getId());
         }
+
+        // Published to payment service by OutboxRelay once this transaction commits. Keyed by user,
+        // so one user's payments stay in order on one partition while users are paid in parallel
+        OrderDTO orderDTO = orderMapper.toDto(order);
+        outboxService.enqueue(orderCreated, userId.toString(), order.getId(), orderDTO);
+        orderReadCache.putAfterCommit(orderDTO);
+        orderStatistics.recordCreatedAfterCommit(order);
         log.debug("Order created successfully: {}", order.getId());
         
         return order;
     }
 
+    /**
+     * Applies a batch of status updates in one transaction. The affected orders are row-locked
+     * and each update is checked against the status it would leave; stale or out-of-order
+     * updates are skipped and counted. Every applied update is recorded in the history, but
+     * each order's status is written once, with the last applied update of the batch.
+     * Updates must be passed in the order they were published.
+     *
+     * @return the number of updates applied
+     */
+    @Transactional
+    public int applyStatusUpdates(List<OrderStatusUpdateDTO> updates) {
+        Map<Long, List<OrderStatusUpdateDTO>> updatesByOrder = updates.stream()
+                .collect(Collectors.groupingBy(OrderStatusUpdateDTO::getOrderId, LinkedHashMap::new, Collectors.toList()));
+        List<Order> orders = orderRepository.lockAllById(updatesByOrder.keySet());
+
+        List<OrderStatusHistory> entries = new ArrayList<>(updates.size());
+        Set<Long> changedOrderIds = new LinkedHashSet<>();
+        for (Order order : orders) {
+            for (OrderStatusUpdateDTO update : updatesByOrder.remove(order.getId())) {
+                if (!order.getStatus().canTransitionTo(update.getStatus())) {
+                    statusMetrics.rejected(update.getStatus());
+                    log.warn("Rejecting status update for order {}: {} -> {}",
+                            order.getId(), order.getStatus(), update.getStatus());
+                    continue;
+                }
+                statusMetrics.applied(update.getStatus());
+                orderStatistics.recordTransitionAfterCommit(order.getStatus(), update.getStatus());
+                order.setStatus(update.getStatus());
+                entries.add(historyEntry(order, update.getStatus(), update.getComment(),
+                        update.getTimestamp() != null ? update.getTimestamp() : LocalDateTime.now()));
+                changedOrderIds.add(order.getId());
+            }
+        }
+        updatesByOrder.forEach((orderId, orderUpdates) ->
+                log.warn("Ignoring {} status updates for unknown order {}", orderUpdates.size(), orderId));
+
+        // Status UPDATEs are flushed as one JDBC batch at commit
+        orderBatchWriter.insertHistory(entries);
+        entries.forEach(entry -> eventPublisher.publishEvent(orderMapper.toEvent(entry)));
+        changedOrderIds.forEach(orderReadCache::invalidateAfterCommit);
+        log.debug("Applied {} of {} status updates to {} orders", entries.size(), updates.size(), changedOrderIds.size());
+        return entries.size();
+    }
+
+    @Transactional(readOnly = true)
+    public Order getOrderByIdempotencyKey(String idempotencyKey) {
+        Long userId = getCurrentUserId();
+        Order order = orderRepository.findWithItemsByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .orElseThrow(() -> new OrderNotFoundException("No order for idempotency key: " + idempotencyKey));
+        Hibernate.initialize(order.getStatusHistoryDTO());
+        idempotencyKeyCache.rememberAfterCommit(userId, idempotencyKey, order.getId());
+        return order;
+    }
+
+    /**
+     * Moves an order to {@code status} with a single conditional UPDATE, so a stale or
+     * duplicate callback cannot overwrite a newer status.
+     *
+     * @throws InvalidStatusTransitionException if the order's current status does not allow it
+     */
     @Transactional
     public Order updateOrderStatus(Long orderId, OrderStatus status, String message) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
-        
-        order.setStatus(status);
-        if (order.getStatusHistoryDTO() == null) {
-            order.setStatusHistoryDTO(new ArrayList<>());
+        Set<OrderStatus> expected = status.predecessors();
+        if (expected.isEmpty() || orderRepository.updateStatusIfIn(orderId, status, expected) == 0) {
+            OrderStatus current = orderRepository.findStatusById(orderId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
+            statusMetrics.rejected(status);
+            throw new InvalidStatusTransitionException(orderId, current, status);
         }
-        order.getStatusHistoryDTO().add(new StatusHistoryDTO(status, LocalDateTime.now(), message));
-        
-        order = orderRepository.save(order);
-        log.debug("Updating order status: {} -> {} ({})", orderId, status, message);
-        
+        statusMetrics.applied(status);
+
+        // Loaded after the UPDATE, so it already carries the new status; the last history entry
+        // is the status it left, since the row lock orders concurrent transitions of the order
+        Order order = loadOrder(orderId);
+        List<OrderStatusHistory> history = order.getStatusHistoryDTO();
+        orderStatistics.recordTransitionAfterCommit(
+                history.isEmpty() ? null : history.get(history.size() - 1).getStatus(), status);
+        OrderStatusHistory entry = statusHistoryRepository.save(historyEntry(order, status, message));
+        order.getStatusHistoryDTO().add(entry);
+        // Delivered to SSE subscribers by OrderEventBus after commit
+        eventPublisher.publishEvent(orderMapper.toEvent(entry));
+        orderReadCache.invalidateAfterCommit(orderId);
+        log.debug("Updated order status: {} -> {} ({})", orderId, status, message);
+
         return order;
     }
 
+    public OrderStats getStatistics(int hours, int days) {
+        return orderStatistics.snapshot(hours, days);
+    }
+
+    public OrderDTO getOrder(Long orderId) {
+        return orderReadCache.get(orderId, id -> orderMapper.toDto(loadOrder(id)));
+    }
+
     @Transactional(readOnly = true)
-    public Order getOrder(Long orderId) {
-        return orderRepository.findById(orderId)
+    public OrderStatusEvent getLatestStatus(Long orderId) {
+        return statusHistoryRepository.findFirstByOrderIdOrderByIdDesc(orderId)
+                .map(orderMapper::toEvent)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
     }
 
     @Transactional(readOnly = true)
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    public OrderPage getOrders(OrderFilter filter, String cursor, int limit) {
+        // One extra row tells whether another page exists without a count query
+        List<OrderSummary> rows = orderRepository.findSummaries(filter, OrderCursor.decode(cursor), limit + 1);
+        if (rows.size() <= limit) {
+            return new OrderPage(rows, null);
+        }
+        List<OrderSummary> page = List.copyOf(rows.subList(0, limit));
+        return new OrderPage(page, OrderCursor.after(page.get(limit - 1)).encode());
     }
 
     @Transactional
     public void deleteOrder(Long orderId) {
         log.info("Deleting order: {}", orderId);
-        if (!orderRepository.existsById(orderId)) {
-            throw new OrderNotFoundException("Order not found: " + orderId);
-        }
-        orderRepository.deleteById(orderId);
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
+        orderRepository.delete(order);
+        orderReadCache.invalidateAfterCommit(orderId);
+        orderStatistics.recordDeletedAfterCommit(order);
         log.debug("Order deleted successfully: {}", orderId);
     }
 
@@ -115,7 +237,45 @@ public class OrderService {
         }
     }
 
-    private Long getCurrentUserId() {
+    /**
+     * Loads the order with both collections initialized, so callers can serialize or map it
+     * outside the transaction: one select for the order and its items, one for its history.
+     */
+    private Order loadOrder(Long orderId) {
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found: " + orderId));
+        Hibernate.initialize(order.getStatusHistoryDTO());
+        return order;
+    }
+
+    static Order newOrder(Long userId, OrderRequest orderRequest) {
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setStatus(OrderStatus.REGISTERED);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setItems(orderRequest.getItems().stream()
+                .map(item -> new OrderItemDTO(item.getProductId(), item.getQuantity(), Money.of(item.getPrice())))
+                .toList());
+        order.setTotalAmount(calculateTotalAmount(order.getItems()));
+        order.setStatusHistoryDTO(new ArrayList<>());
+        order.getStatusHistoryDTO().add(historyEntry(order, OrderStatus.REGISTERED, "Order created"));
+        return order;
+    }
+
+    static OrderStatusHistory historyEntry(Order order, OrderStatus status, String comment) {
+        return historyEntry(order, status, comment, LocalDateTime.now());
+    }
+
+    static OrderStatusHistory historyEntry(Order order, OrderStatus status, String comment, LocalDateTime timestamp) {
+        return OrderStatusHistory.builder()
+                .order(order)
+                .status(status)
+                .timestamp(timestamp)
+                .comment(comment)
+                .build();
+    }
+
+    static Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails customUserDetails) {
             return customUserDetails.getUserId();
@@ -125,9 +285,14 @@ public class OrderService {
 
 
 
-    private BigDecimal calculateTotalAmount(List<OrderItemDTO> items) {
-        return items.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Sums in minor units and allocates a single {@link Money} for the total.
+     */
+    static Money calculateTotalAmount(List<OrderItemDTO> items) {
+        long total = 0;
+        for (OrderItemDTO item : items) {
+            total = Math.addExact(total, Math.multiplyExact(item.getPrice().getMinorUnits(), item.getQuantity()));
+        }
+        return Money.ofMinor(total);
     }
 }
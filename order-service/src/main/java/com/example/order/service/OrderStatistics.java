@@ -0,0 +1,185 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.common.transaction.AfterCommit;
+import com.example.order.dto.OrderStats;
+import com.example.order.dto.OrderStatsBucket;
+import com.example.order.model.Order;
+import com.example.order.repository.OrderStatisticsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live order aggregates: the number of orders in each status, and the orders created and their
+ * revenue per hour for the last {@code orders.stats.retention}. Counters are {@link LongAdder}s,
+ * so concurrent writers do not contend; they are rebuilt from the database on startup and then
+ * updated after each committed change. Reads are eventually consistent with the database.
+ */
+@Component
+@Slf4j
+public class OrderStatistics {
+
+    private final OrderStatisticsRepository statisticsRepository;
+    private final Duration retention;
+    private final Map<OrderStatus, LongAdder> countsByStatus = new EnumMap<>(OrderStatus.class);
+    private final ConcurrentSkipListMap<LocalDateTime, Totals> hourlyTotals = new ConcurrentSkipListMap<>();
+
+    private record Totals(LongAdder orders, LongAdder revenueMinorUnits) {
+
+        Totals() {
+            this(new LongAdder(), new LongAdder());
+        }
+
+        void add(long orderCount, long minorUnits) {
+            orders.add(orderCount);
+            revenueMinorUnits.add(minorUnits);
+        }
+    }
+
+    public OrderStatistics(OrderStatisticsRepository statisticsRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${orders.stats.retention:31d}") Duration retention) {
+        this.statisticsRepository = statisticsRepository;
+        this.retention = retention;
+        for (OrderStatus status : OrderStatus.values()) {
+            LongAdder count = new LongAdder();
+            countsByStatus.put(status, count);
+            Gauge.builder("orders.status.current", count, LongAdder::sum)
+                    .description("Orders currently in each status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("orders.created.today", this, stats -> stats.today().getOrders())
+                .register(meterRegistry);
+        Gauge.builder("orders.revenue.today", this, stats -> stats.today().getRevenue().toBigDecimal().doubleValue())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replaces the aggregates with ones computed from the database. Runs before the Kafka
+     * listeners and the web server start, so no live update is lost or counted twice.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Map<OrderStatus, Long> counts = statisticsRepository.countByStatus();
+        List<OrderStatisticsRepository.HourlyTotal> totals =
+                statisticsRepository.hourlyTotalsSince(currentHour().minus(retention));
+
+        countsByStatus.forEach((status, count) -> {
+            count.reset();
+            count.add(counts.getOrDefault(status, 0L));
+        });
+        hourlyTotals.clear();
+        totals.forEach(total -> totalsOf(total.hour()).add(total.orders(), total.revenue().getMinorUnits()));
+        log.info("Rebuilt order statistics: {} orders, {} hours of totals",
+                counts.values().stream().mapToLong(Long::longValue).sum(), hourlyTotals.size());
+    }
+
+    public void recordCreatedAfterCommit(Order order) {
+        recordCreatedAfterCommit(List.of(order));
+    }
+
+    public void recordCreatedAfterCommit(Collection<Order> orders) {
+        AfterCommit.run(() -> orders.forEach(order -> {
+            countsByStatus.get(order.getStatus()).increment();
+            addTotals(order, 1);
+        }));
+    }
+
+    /**
+     * @param from the status the order left; {@code null} if unknown
+     */
+    public void recordTransitionAfterCommit(OrderStatus from, OrderStatus to) {
+        AfterCommit.run(() -> {
+            if (from != null) {
+                countsByStatus.get(from).decrement();
+            }
+            countsByStatus.get(to).increment();
+        });
+    }
+
+    public void recordDeletedAfterCommit(Order order) {
+        AfterCommit.run(() -> {
+            countsByStatus.get(order.getStatus()).decrement();
+            addTotals(order, -1);
+        });
+    }
+
+    /**
+     * @param hours number of hourly buckets, ending with the current hour
+     * @param days  number of daily buckets, ending with today
+     */
+    public OrderStats snapshot(int hours, int days) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        countsByStatus.forEach((status, count) -> counts.put(status, count.sum()));
+
+        LocalDateTime currentHour = currentHour();
+        List<OrderStatsBucket> hourly = new ArrayList<>(hours);
+        for (int i = hours - 1; i >= 0; i--) {
+            LocalDateTime hour = currentHour.minusHours(i);
+            hourly.add(bucket(hour, hourlyTotals.subMap(hour, hour.plusHours(1))));
+        }
+
+        LocalDate today = currentHour.toLocalDate();
+        List<OrderStatsBucket> daily = new ArrayList<>(days);
+        for (int i = days - 1; i >= 0; i--) {
+            LocalDateTime day = today.minusDays(i).atStartOfDay();
+            daily.add(bucket(day, hourlyTotals.subMap(day, day.plusDays(1))));
+        }
+        return new OrderStats(counts, hourly, daily);
+    }
+
+    OrderStatsBucket today() {
+        LocalDateTime day = currentHour().toLocalDate().atStartOfDay();
+        return bucket(day, hourlyTotals.subMap(day, day.plusDays(1)));
+    }
+
+    private void addTotals(Order order, int sign) {
+        LocalDateTime hour = order.getCreatedAt().truncatedTo(ChronoUnit.HOURS);
+        if (hour.isBefore(currentHour().minus(retention))) {
+            return;
+        }
+        totalsOf(hour).add(sign, sign * minorUnits(order.getTotalAmount()));
+        hourlyTotals.headMap(currentHour().minus(retention)).clear();
+    }
+
+    private Totals totalsOf(LocalDateTime hour) {
+        return hourlyTotals.computeIfAbsent(hour, h -> new Totals());
+    }
+
+    private static OrderStatsBucket bucket(LocalDateTime start, ConcurrentNavigableMap<LocalDateTime, Totals> totals) {
+        long orders = 0;
+        long revenue = 0;
+        for (Totals total : totals.values()) {
+            orders += total.orders().sum();
+            revenue += total.revenueMinorUnits().sum();
+        }
+        return new OrderStatsBucket(start, orders, Money.ofMinor(revenue));
+    }
+
+    private static LocalDateTime currentHour() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static long minorUnits(Money amount) {
+        return amount == null ? 0 : amount.getMinorUnits();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts status transitions by target status and outcome, as
+ * {@code orders.status.transitions{status, outcome=applied|rejected}}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStatusMetrics {
+
+    static final String TRANSITIONS = "orders.status.transitions";
+
+    private final MeterRegistry meterRegistry;
+
+    public void applied(OrderStatus status) {
+        counter(status, "applied").increment();
+    }
+
+    public void rejected(OrderStatus status) {
+        counter(status, "rejected").increment();
+    }
+
+    private Counter counter(OrderStatus status, String outcome) {
+        return Counter.builder(TRANSITIONS)
+                .tag("status", status.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.order.service;
+
+import com.example.order.model.OutboxEvent;
+import com.example.order.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes pending outbox rows in batches: every record of a batch is handed to the
+ * producer first, then the producer is flushed once and the acknowledged rows are deleted.
+ * Rows whose send failed stay in the table and are retried on the next run.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> outboxKafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> outboxKafkaTemplate,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        Integer published;
+        do {
+            published = transactionTemplate.execute(status -> publishNextBatch());
+        } while (published != null && published == batchSize);
+    }
+
+    int publishNextBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            futures.add(outboxKafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+        outboxKafkaTemplate.flush();
+
+        List<Long> publishedIds = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                futures.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                publishedIds.add(event.getId());
+            } catch (Exception e) {
+                log.error("Failed to publish outbox event {} to topic {}. Error: {}",
+                        event.getId(), event.getTopic(), e.getMessage());
+            }
+        }
+
+        outboxEventRepository.deleteAllByIdInBatch(publishedIds);
+        log.debug("Published {} of {} outbox events", publishedIds.size(), batch.size());
+        return publishedIds.size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.order.service;
+
+import com.example.order.model.OutboxEvent;
+import com.example.order.repository.OrderBatchWriter;
+import com.example.order.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records integration events in the same transaction as the business change.
+ * {@link OutboxRelay} publishes them to Kafka after commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderBatchWriter orderBatchWriter;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(String topic, String key, Long aggregateId, Object payload) {
+        OutboxEvent event = OutboxEvent.builder()
+                .aggregateId(aggregateId)
+                .topic(topic)
+                .messageKey(key)
+                .payload(toJson(payload))
+                .createdAt(LocalDateTime.now())
+                .build();
+        event = outboxEventRepository.save(event);
+        log.debug("Enqueued outbox event {} for aggregate {} to topic {}", event.getId(), aggregateId, topic);
+        return event;
+    }
+
+    /**
+     * Enqueues one event per aggregate, all with the same message key, with a single batched insert.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String topic, String key, Map<Long, ?> payloadsByAggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = payloadsByAggregateId.entrySet().stream()
+                .map(entry -> OutboxEvent.builder()
+                        .aggregateId(entry.getKey())
+                        .topic(topic)
+                        .messageKey(key)
+                        .payload(toJson(entry.getValue()))
+                        .createdAt(now)
+                        .build())
+                .toList();
+        orderBatchWriter.insertOutboxEvents(events);
+        log.debug("Enqueued {} outbox events to topic {}", events.size(), topic);
+    }
+
+    String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload", e);
+        }
+    }
+}
@@ -1,28 +1,50 @@
 package com.example.order.controller;
 
+import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderPage;
+import com.example.order.dto.OrderRequest;
+import com.example.order.dto.OrderStats;
+import com.example.order.dto.OrderStatsBucket;
+import com.example.order.dto.OrderSummary;
+import com.example.order.exception.GlobalExceptionHandler;
+import com.example.order.exception.InvalidCursorException;
+import com.example.order.exception.InvalidStatusTransitionException;
 import com.example.order.model.Order;
+import com.example.order.service.OrderBatchService;
+import com.example.order.service.OrderEventBus;
+import com.example.order.service.OrderExportService;
 import com.example.order.service.OrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
-import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +54,15 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Mock
+    private OrderBatchService orderBatchService;
+
+    @Mock
+    private OrderExportService orderExportService;
+
+    @Mock
+    private OrderEventBus orderEventBus;
+
     @InjectMocks
     private OrderController orderController;
 
@@ -44,11 +75,42 @@ class OrderControllerTest {
         objectMapper = new ObjectMapper();
     }
 
+    @Test
+    void createOrder_ShouldReturnOriginalOrder_WhenIdempotencyKeyWasUsed() throws Exception {
+        Order original = new Order(7L, 2L, Money.parse("100.0"), null, OrderStatus.REGISTERED, null, Collections.emptyList(), Collections.emptyList());
+        when(orderService.createOrder(any(OrderRequest.class), eq("key-1")))
+                .thenThrow(constraintViolation(Order.IDEMPOTENCY_KEY_CONSTRAINT));
+        when(orderService.getOrderByIdempotencyKey("key-1")).thenReturn(original);
+
+        mockMvc.perform(post("/api/orders")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\": [{\"productId\": 1, \"quantity\": 1, \"price\": 100}], \"deliveryAddress\": \"Test Address\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7));
+    }
+
+    @Test
+    void createOrder_ShouldNotTreatOtherConstraintViolationsAsReusedKey() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        when(orderService.createOrder(any(OrderRequest.class), eq("key-1")))
+                .thenThrow(constraintViolation("fk_order_items_order_id"));
+
+        mockMvc.perform(post("/api/orders")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\": [{\"productId\": 1, \"quantity\": 1, \"price\": 100}], \"deliveryAddress\": \"Test Address\"}"))
+                .andExpect(status().isInternalServerError());
+        verify(orderService, never()).getOrderByIdempotencyKey(any());
+    }
+
     @Test
     void updateOrderStatus_ShouldUpdateStatus() throws Exception {
         Long orderId = 1L;
         OrderStatus newStatus = OrderStatus.PAID;
-        Order updatedOrder = new Order(orderId, 2L, new BigDecimal("100.0"), null, newStatus, Collections.emptyList(), Collections.emptyList());
+        Order updatedOrder = new Order(orderId, 2L, Money.parse("100.0"), null, newStatus, null, Collections.emptyList(), Collections.emptyList());
 
         when(orderService.updateOrderStatus(eq(orderId), eq(newStatus), any())).thenReturn(updatedOrder);
 
@@ -60,10 +122,38 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.status").value(newStatus.toString()));
     }
 
+    @Test
+    void getStatistics_ShouldReturnAggregatesFromService() throws Exception {
+        OrderStats stats = new OrderStats(Map.of(OrderStatus.PAID, 3L),
+                List.of(new OrderStatsBucket(LocalDateTime.of(2024, 1, 1, 10, 0), 2, Money.parse("25.00"))),
+                List.of());
+        when(orderService.getStatistics(24, 7)).thenReturn(stats);
+
+        mockMvc.perform(get("/api/orders/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countsByStatus.PAID").value(3))
+                .andExpect(jsonPath("$.hourly[0].orders").value(2));
+    }
+
+    @Test
+    void updateOrderStatus_ShouldReturnConflict_WhenTransitionIsNotAllowed() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        when(orderService.updateOrderStatus(eq(1L), eq(OrderStatus.PAID), any()))
+                .thenThrow(new InvalidStatusTransitionException(1L, OrderStatus.INVENTORY_DONE, OrderStatus.PAID));
+
+        mockMvc.perform(patch("/api/orders/{orderId}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"PAID\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentStatus").value("INVENTORY_DONE"));
+    }
+
     @Test
     void getOrder_ShouldReturnOrder() throws Exception {
         Long orderId = 1L;
-        Order order = new Order(orderId, 2L, new BigDecimal("100.0"), null, OrderStatus.PAID, Collections.emptyList(), Collections.emptyList());
+        OrderDTO order = OrderDTO.builder().id(orderId).userId(2L).totalAmount(Money.parse("100.0")).status(OrderStatus.PAID).build();
 
         when(orderService.getOrder(orderId)).thenReturn(order);
 
@@ -73,13 +163,61 @@ class OrderControllerTest {
     }
 
     @Test
-    void getAllOrders_ShouldReturnList() throws Exception {
-        List<Order> orders = List.of(new Order(1L, 2L, new BigDecimal("100.0"), null, OrderStatus.PAID, Collections.emptyList(), Collections.emptyList()));
-        when(orderService.getAllOrders()).thenReturn(orders);
+    void getOrders_ShouldReturnPage() throws Exception {
+        OrderPage page = new OrderPage(
+                List.of(new OrderSummary(1L, 2L, Money.parse("100.0"), OrderStatus.PAID, null)), "next");
+        when(orderService.getOrders(any(OrderFilter.class), isNull(), eq(50))).thenReturn(page);
 
         mockMvc.perform(get("/api/orders"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(1));
+                .andExpect(jsonPath("$.items.size()").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getOrders_ShouldPassFiltersToService() throws Exception {
+        when(orderService.getOrders(any(OrderFilter.class), eq("abc"), eq(10)))
+                .thenReturn(new OrderPage(List.of(), null));
+
+        mockMvc.perform(get("/api/orders")
+                        .param("userId", "2")
+                        .param("status", "PAID")
+                        .param("createdFrom", "2024-01-01T00:00:00")
+                        .param("cursor", "abc")
+                        .param("limit", "10"))
+                .andExpect(status().isOk());
+
+        verify(orderService).getOrders(
+                eq(new OrderFilter(2L, OrderStatus.PAID, LocalDateTime.of(2024, 1, 1, 0, 0), null)), eq("abc"), eq(10));
     }
 
+    @Test
+    void getOrders_ShouldReturnBadRequestForMalformedCursor() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        when(orderService.getOrders(any(OrderFilter.class), eq("abc"), eq(50)))
+                .thenThrow(new InvalidCursorException("Invalid cursor: abc", null));
+
+        mockMvc.perform(get("/api/orders").param("cursor", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor: abc"));
+    }
+
+    @Test
+    void getOrders_ShouldNotReportInternalErrorsAsBadRequest() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        when(orderService.getOrders(any(OrderFilter.class), isNull(), eq(50)))
+                .thenThrow(new IllegalArgumentException("bug"));
+
+        mockMvc.perform(get("/api/orders"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    private static DataIntegrityViolationException constraintViolation(String constraint) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key value violates unique constraint", new SQLException(), constraint));
+    }
 }
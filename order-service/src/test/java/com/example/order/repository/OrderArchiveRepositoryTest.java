@@ -0,0 +1,145 @@
+package com.example.order.repository;
+
+import com.example.common.dto.OrderItemDTO;
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class OrderArchiveRepositoryTest {
+
+    private static final Set<OrderStatus> TERMINAL = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.PAYMENT_FAILED);
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("order_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private OrderArchiveRepository archiveRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        archiveRepository = new OrderArchiveRepository(jdbcTemplate);
+        archiveRepository.createTables();
+    }
+
+    @Test
+    void moveOrders_ShouldMoveOldTerminalOrdersWithItemsAndHistoryIntoMonthlyPartitions() {
+        Long oldDelivered = persistOrder(OrderStatus.DELIVERED, LocalDateTime.of(2024, 1, 15, 10, 0));
+        Long oldFailed = persistOrder(OrderStatus.PAYMENT_FAILED, LocalDateTime.of(2024, 2, 3, 8, 30));
+        Long oldInProgress = persistOrder(OrderStatus.PAID, LocalDateTime.of(2024, 1, 20, 9, 0));
+        Long recentDelivered = persistOrder(OrderStatus.DELIVERED, CUTOFF.plusDays(1));
+
+        assertThat(archiveRepository.findOldestCreatedAt(TERMINAL, CUTOFF)).contains(LocalDateTime.of(2024, 1, 15, 10, 0));
+        archiveRepository.createPartitions(YearMonth.of(2024, 1), YearMonth.from(CUTOFF));
+        List<Long> batch = archiveRepository.lockBatch(TERMINAL, CUTOFF, 10);
+        int moved = archiveRepository.moveOrders(batch);
+
+        assertThat(batch).containsExactly(oldDelivered, oldFailed);
+        assertThat(moved).isEqualTo(2);
+        assertThat(orderRepository.findAllById(List.of(oldDelivered, oldFailed, oldInProgress, recentDelivered)))
+                .extracting(Order::getId)
+                .containsExactlyInAnyOrder(oldInProgress, recentDelivered);
+        assertThat(count("SELECT count(*) FROM orders_archive_2024_01")).isEqualTo(1);
+        assertThat(count("SELECT count(*) FROM orders_archive_2024_02")).isEqualTo(1);
+        assertThat(count("SELECT count(*) FROM order_items_archive WHERE order_id = " + oldDelivered)).isEqualTo(2);
+        assertThat(count("SELECT count(*) FROM order_status_history_archive WHERE order_id = " + oldFailed)).isEqualTo(2);
+        assertThat(count("SELECT count(*) FROM order_items WHERE order_id IN (" + oldDelivered + ", " + oldFailed + ")"))
+                .isZero();
+    }
+
+    @Test
+    void lockBatch_ShouldReturnOldestOrdersFirstUpToLimit() {
+        Long second = persistOrder(OrderStatus.DELIVERED, LocalDateTime.of(2024, 2, 1, 0, 0));
+        Long first = persistOrder(OrderStatus.DELIVERED, LocalDateTime.of(2024, 1, 1, 0, 0));
+        persistOrder(OrderStatus.DELIVERED, LocalDateTime.of(2024, 2, 2, 0, 0));
+
+        assertThat(archiveRepository.lockBatch(TERMINAL, CUTOFF, 2)).containsExactly(first, second);
+    }
+
+    @Test
+    void createPartitions_ShouldBeIdempotent() {
+        archiveRepository.createPartitions(YearMonth.of(2024, 1), YearMonth.of(2024, 2));
+        archiveRepository.createPartitions(YearMonth.of(2024, 2), YearMonth.of(2024, 3));
+
+        assertThat(count("SELECT count(*) FROM pg_inherits WHERE inhparent = 'orders_archive'::regclass")).isEqualTo(3);
+    }
+
+    private int count(String sql) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+        return count != null ? count : 0;
+    }
+
+    private Long persistOrder(OrderStatus status, LocalDateTime createdAt) {
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setTotalAmount(Money.parse("20.00"));
+        order.setItems(new ArrayList<>(List.of(
+                new OrderItemDTO(1L, 1, Money.parse("10.00")),
+                new OrderItemDTO(2L, 1, Money.parse("10.00")))));
+        order.setStatusHistoryDTO(new ArrayList<>(List.of(
+                history(order, OrderStatus.REGISTERED, createdAt),
+                history(order, status, createdAt.plusMinutes(5)))));
+        Long id = orderRepository.save(order).getId();
+        entityManager.flush();
+        entityManager.clear();
+        return id;
+    }
+
+    private static OrderStatusHistory history(Order order, OrderStatus status, LocalDateTime timestamp) {
+        return OrderStatusHistory.builder()
+                .order(order)
+                .status(status)
+                .timestamp(timestamp)
+                .comment(status.name())
+                .build();
+    }
+}
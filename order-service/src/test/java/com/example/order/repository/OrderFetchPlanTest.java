@@ -0,0 +1,216 @@
+package com.example.order.repository;
+
+import com.example.common.dto.OrderDTO;
+import com.example.common.dto.OrderItemDTO;
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderPage;
+import com.example.order.exception.InvalidStatusTransitionException;
+import com.example.order.mapper.OrderMapper;
+import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+import com.example.order.service.IdempotencyKeyCache;
+import com.example.order.service.OrderReadCache;
+import com.example.order.service.OrderService;
+import com.example.order.service.OrderStatistics;
+import com.example.order.service.OrderStatusMetrics;
+import com.example.order.service.OutboxService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Guards the fetch plan of each read path by counting the SQL statements it issues.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class OrderFetchPlanTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("order_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStatusHistoryRepository statusHistoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final OrderMapper orderMapper = new OrderMapper();
+
+    private OrderService orderService;
+    private Statistics statistics;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(orderRepository, statusHistoryRepository,
+                new OrderBatchWriter(new JdbcTemplate(dataSource)), mock(KafkaTemplate.class), mock(OutboxService.class),
+                mock(ApplicationEventPublisher.class), mock(IdempotencyKeyCache.class),
+                new OrderReadCache(new SimpleMeterRegistry(), transactionManager, 100, Duration.ofMinutes(1)),
+                new OrderStatusMetrics(new SimpleMeterRegistry()), mock(OrderStatistics.class), orderMapper);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getOrder_ShouldLoadOrderItemsAndHistoryWithTwoStatements() {
+        Long orderId = persistOrders(1).get(0);
+
+        statistics.clear();
+        OrderDTO dto = orderService.getOrder(orderId);
+
+        assertThat(dto.getItems()).hasSize(3);
+        assertThat(dto.getStatusHistory()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getOrder_ShouldNotQueryDatabase_WhenOrderIsCached() {
+        Long orderId = persistOrders(1).get(0);
+        orderService.getOrder(orderId);
+
+        statistics.clear();
+        OrderDTO dto = orderService.getOrder(orderId);
+
+        assertThat(dto.getId()).isEqualTo(orderId);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void getOrders_ShouldRunOneStatementPerPage() {
+        persistOrders(30);
+
+        statistics.clear();
+        OrderPage page = orderService.getOrders(new OrderFilter(), null, 25);
+
+        assertThat(page.getItems()).hasSize(25);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void mappingSeveralOrders_ShouldBatchCollectionLoads() {
+        List<Long> ids = persistOrders(20);
+
+        statistics.clear();
+        List<OrderDTO> dtos = orderRepository.findAllById(ids).stream()
+                .map(orderMapper::toDto)
+                .toList();
+
+        assertThat(dtos).hasSize(20);
+        // Orders, then one batch of items and one batch of history, regardless of the order count
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void updateOrderStatus_ShouldWriteOneInsertAndOneUpdate() {
+        Long orderId = persistOrders(1).get(0);
+
+        statistics.clear();
+        Order order = orderService.updateOrderStatus(orderId, OrderStatus.INVENTORY_DONE, "Reserved");
+        entityManager.flush();
+
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.INVENTORY_DONE);
+        assertThat(order.getStatusHistoryDTO()).hasSize(3);
+        // Conditional UPDATE, order with items, history, then the history INSERT
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(statistics.getCollectionRemoveCount()).isZero();
+    }
+
+    @Test
+    void updateOrderStatus_ShouldRejectStaleTransitionWithoutWriting() {
+        Long orderId = persistOrders(1).get(0);
+        orderService.updateOrderStatus(orderId, OrderStatus.INVENTORY_DONE, "Reserved");
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        assertThatThrownBy(() -> orderService.updateOrderStatus(orderId, OrderStatus.PAID, "Late callback"))
+                .isInstanceOf(InvalidStatusTransitionException.class);
+
+        assertThat(orderRepository.findStatusById(orderId)).contains(OrderStatus.INVENTORY_DONE);
+        assertThat(statistics.getEntityInsertCount()).isZero();
+    }
+
+    private List<Long> persistOrders(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setUserId(1L);
+            order.setStatus(OrderStatus.PAID);
+            order.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            order.setTotalAmount(Money.parse("30.00"));
+            order.setItems(new ArrayList<>(List.of(
+                    new OrderItemDTO(1L, 1, Money.parse("10.00")),
+                    new OrderItemDTO(2L, 1, Money.parse("10.00")),
+                    new OrderItemDTO(3L, 1, Money.parse("10.00")))));
+            order.setStatusHistoryDTO(new ArrayList<>(List.of(
+                    history(order, OrderStatus.REGISTERED, "Order created"),
+                    history(order, OrderStatus.PAID, "Paid"))));
+            ids.add(orderRepository.save(order).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+
+    private static OrderStatusHistory history(Order order, OrderStatus status, String comment) {
+        return OrderStatusHistory.builder()
+                .order(order)
+                .status(status)
+                .timestamp(LocalDateTime.now())
+                .comment(comment)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.order.repository.OrderArchiveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderArchiverTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 3, 10, 0, 0);
+
+    @Mock
+    private OrderArchiveRepository archiveRepository;
+
+    @Mock
+    private OrderReadCache orderReadCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderArchiver orderArchiver;
+
+    @BeforeEach
+    void setUp() {
+        orderArchiver = new OrderArchiver(archiveRepository, orderReadCache, transactionManager, Duration.ofDays(7), 2, 10);
+    }
+
+    @Test
+    void archivableStatuses_ShouldBeTheTerminalOnes() {
+        assertThat(OrderArchiver.ARCHIVABLE_STATUSES)
+                .contains(OrderStatus.DELIVERED, OrderStatus.PAYMENT_FAILED, OrderStatus.INVENTORY_FAILED,
+                        OrderStatus.UNEXPECTED_FAILURE)
+                .doesNotContain(OrderStatus.REGISTERED, OrderStatus.PAID, OrderStatus.INVENTORY_DONE);
+    }
+
+    @Test
+    void archiveCreatedBefore_ShouldMoveChunksUntilOneIsShort() {
+        when(archiveRepository.findOldestCreatedAt(OrderArchiver.ARCHIVABLE_STATUSES, CUTOFF))
+                .thenReturn(Optional.of(LocalDateTime.of(2024, 1, 5, 12, 0)));
+        when(archiveRepository.lockBatch(OrderArchiver.ARCHIVABLE_STATUSES, CUTOFF, 2))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(archiveRepository.moveOrders(any())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+
+        int archived = orderArchiver.archiveCreatedBefore(CUTOFF);
+
+        assertThat(archived).isEqualTo(3);
+        verify(archiveRepository).createTables();
+        verify(archiveRepository).createPartitions(YearMonth.of(2024, 1), YearMonth.of(2024, 3));
+        verify(archiveRepository, times(2)).moveOrders(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(orderReadCache).invalidateAfterCommit(1L);
+        verify(orderReadCache).invalidateAfterCommit(3L);
+    }
+
+    @Test
+    void archiveCreatedBefore_ShouldStopAfterMaxBatchesPerRun() {
+        orderArchiver = new OrderArchiver(archiveRepository, orderReadCache, transactionManager, Duration.ofDays(7), 2, 3);
+        when(archiveRepository.findOldestCreatedAt(any(), any())).thenReturn(Optional.of(CUTOFF.minusDays(1)));
+        when(archiveRepository.lockBatch(any(), any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(archiveRepository.moveOrders(any())).thenReturn(2);
+
+        assertThat(orderArchiver.archiveCreatedBefore(CUTOFF)).isEqualTo(6);
+        verify(archiveRepository, times(3)).moveOrders(any());
+    }
+
+    @Test
+    void archiveCreatedBefore_ShouldDoNothing_WhenNoOrderIsOldEnough() {
+        when(archiveRepository.findOldestCreatedAt(any(), any())).thenReturn(Optional.empty());
+
+        assertThat(orderArchiver.archiveCreatedBefore(CUTOFF)).isZero();
+        orderArchiver.archiveCreatedBefore(CUTOFF);
+
+        verify(archiveRepository, times(1)).createTables();
+        verify(archiveRepository, never()).createPartitions(any(), any());
+        verifyNoInteractions(transactionManager);
+    }
+}
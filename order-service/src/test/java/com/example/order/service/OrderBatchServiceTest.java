@@ -0,0 +1,123 @@
+package com.example.order.service;
+
+import com.example.common.dto.OrderDTO;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderBatchItemResult;
+import com.example.order.dto.OrderBatchRequest;
+import com.example.order.dto.OrderBatchResult;
+import com.example.order.dto.OrderItemRequest;
+import com.example.order.dto.OrderRequest;
+import com.example.order.mapper.OrderMapper;
+import com.example.order.model.Order;
+import com.example.order.repository.OrderBatchWriter;
+import com.example.order.security.CustomUserDetails;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderBatchServiceTest {
+
+    private static final String ORDER_CREATED_TOPIC = "order-created";
+
+    @Mock
+    private OrderBatchWriter orderBatchWriter;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private OrderStatistics orderStatistics;
+
+    private OrderBatchService orderBatchService;
+
+    @BeforeEach
+    void setUp() {
+        orderBatchService = new OrderBatchService(orderBatchWriter, outboxService, orderMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), orderStatistics);
+        ReflectionTestUtils.setField(orderBatchService, "orderCreated", ORDER_CREATED_TOPIC);
+
+        CustomUserDetails userDetails = mock(CustomUserDetails.class);
+        when(userDetails.getUserId()).thenReturn(2L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createOrders_ShouldInsertValidOrdersAndRejectInvalidOnes() {
+        OrderRequest invalid = new OrderRequest(List.of(), "Test Address");
+        OrderBatchRequest request = new OrderBatchRequest(List.of(validRequest(), invalid, validRequest()));
+        doAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            for (int i = 0; i < orders.size(); i++) {
+                orders.get(i).setId(100L + i);
+            }
+            return null;
+        }).when(orderBatchWriter).insertOrders(anyList());
+        when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDTO());
+
+        OrderBatchResult result = orderBatchService.createOrders(request);
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getResults()).extracting(OrderBatchItemResult::getOutcome).containsExactly(
+                OrderBatchItemResult.Outcome.CREATED,
+                OrderBatchItemResult.Outcome.REJECTED,
+                OrderBatchItemResult.Outcome.CREATED);
+        assertThat(result.getResults()).extracting(OrderBatchItemResult::getOrderId).containsExactly(100L, null, 101L);
+        assertThat(result.getResults().get(1).getErrors()).containsExactly("items: Order must contain at least one item");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Order>> orders = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertOrders(orders.capture());
+        assertThat(orders.getValue()).allSatisfy(order -> {
+            assertThat(order.getUserId()).isEqualTo(2L);
+            assertThat(order.getTotalAmount()).isEqualTo(Money.parse("100.0"));
+        });
+        verify(outboxService).enqueueAll(eq(ORDER_CREATED_TOPIC), eq("2"), argThat((Map<Long, ?> payloads) ->
+                payloads.keySet().equals(Set.of(100L, 101L))));
+        verify(orderStatistics).recordCreatedAfterCommit(orders.getValue());
+    }
+
+    @Test
+    void createOrders_ShouldWriteNothing_WhenAllOrdersAreInvalid() {
+        OrderRequest invalid = new OrderRequest(List.of(new OrderItemRequest(1L, 0, BigDecimal.ONE)), "");
+
+        OrderBatchResult result = orderBatchService.createOrders(new OrderBatchRequest(List.of(invalid)));
+
+        assertThat(result.getCreated()).isZero();
+        assertThat(result.getResults().get(0).getErrors()).hasSize(2);
+        verifyNoInteractions(orderBatchWriter, outboxService);
+    }
+
+    private static OrderRequest validRequest() {
+        return new OrderRequest(List.of(new OrderItemRequest(1L, 2, new BigDecimal("50.0"))), "Test Address");
+    }
+}
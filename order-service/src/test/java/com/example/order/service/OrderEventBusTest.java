@@ -0,0 +1,108 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.order.dto.OrderStatusEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderEventBusTest {
+
+    private static final Long ORDER_ID = 1L;
+
+    private final RecordingEmitter emitter = new RecordingEmitter();
+    private final List<Runnable> pendingDrains = new ArrayList<>();
+
+    @Test
+    void subscribe_ShouldSendSnapshotThenTransitionsAndCloseOnTerminalStatus() {
+        OrderEventBus bus = bus(Runnable::run);
+
+        bus.subscribe(ORDER_ID, () -> event(1L, OrderStatus.REGISTERED));
+        bus.publish(event(2L, OrderStatus.PAID));
+        bus.publish(event(3L, OrderStatus.DELIVERED));
+
+        assertThat(emitter.sent).extracting(OrderStatusEvent::getStatus)
+                .containsExactly(OrderStatus.REGISTERED, OrderStatus.PAID, OrderStatus.DELIVERED);
+        assertThat(bus.subscriberCount(ORDER_ID)).isZero();
+    }
+
+    @Test
+    void publish_ShouldSkipEventsOlderThanTheLastSentOne() {
+        OrderEventBus bus = bus(Runnable::run);
+
+        bus.subscribe(ORDER_ID, () -> event(5L, OrderStatus.PAID));
+        bus.publish(event(4L, OrderStatus.REGISTERED));
+
+        assertThat(emitter.sent).extracting(OrderStatusEvent::getId).containsExactly(5L);
+    }
+
+    @Test
+    void publish_ShouldKeepOnlyNewestEvents_WhenSubscriberFallsBehind() {
+        OrderEventBus bus = bus(pendingDrains::add);
+
+        bus.subscribe(ORDER_ID, () -> event(1L, OrderStatus.REGISTERED));
+        for (long id = 2; id <= 10; id++) {
+            bus.publish(event(id, OrderStatus.PAID));
+        }
+        pendingDrains.forEach(Runnable::run);
+
+        assertThat(pendingDrains).hasSize(1);
+        assertThat(emitter.sent).extracting(OrderStatusEvent::getId).containsExactly(7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void publish_ShouldIgnoreOtherOrders() {
+        OrderEventBus bus = bus(Runnable::run);
+
+        bus.subscribe(ORDER_ID, () -> event(1L, OrderStatus.REGISTERED));
+        bus.publish(OrderStatusEvent.builder().id(2L).orderId(2L).status(OrderStatus.PAID).build());
+
+        assertThat(emitter.sent).hasSize(1);
+        assertThat(bus.subscriberCount(ORDER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void subscribe_ShouldUnregister_WhenSnapshotFails() {
+        OrderEventBus bus = bus(Runnable::run);
+
+        assertThrows(IllegalStateException.class, () -> bus.subscribe(ORDER_ID, () -> {
+            throw new IllegalStateException("Order not found");
+        }));
+
+        assertThat(bus.subscriberCount(ORDER_ID)).isZero();
+    }
+
+    private OrderEventBus bus(Executor executor) {
+        return new OrderEventBus(4, 60_000, executor) {
+            @Override
+            SseEmitter createEmitter() {
+                return emitter;
+            }
+        };
+    }
+
+    private static OrderStatusEvent event(Long id, OrderStatus status) {
+        return OrderStatusEvent.builder().id(id).orderId(ORDER_ID).status(status).build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<OrderStatusEvent> sent = new ArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            Set<DataWithMediaType> parts = builder.build();
+            parts.stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(OrderStatusEvent.class::isInstance)
+                    .map(OrderStatusEvent.class::cast)
+                    .forEach(sent::add);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderFilter;
+import com.example.order.dto.OrderSummary;
+import com.example.order.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExportServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        orderExportService = new OrderExportService(orderRepository, objectMapper);
+        ReflectionTestUtils.setField(orderExportService, "fetchSize", 500);
+    }
+
+    @Test
+    void exportOrders_ShouldWriteOneJsonObjectPerLineAndCloseCursor() throws Exception {
+        OrderFilter filter = OrderFilter.builder().status(OrderStatus.PAID).build();
+        AtomicBoolean closed = new AtomicBoolean();
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        Stream<OrderSummary> rows = Stream.of(
+                new OrderSummary(1L, 10L, Money.parse("5.00"), OrderStatus.PAID, createdAt),
+                new OrderSummary(2L, 11L, Money.parse("7.50"), OrderStatus.PAID, createdAt)
+        ).onClose(() -> closed.set(true));
+        when(orderRepository.streamSummaries(filter, 500)).thenReturn(rows);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = orderExportService.exportOrders(filter, out);
+
+        assertThat(exported).isEqualTo(2);
+        assertThat(closed).isTrue();
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":1,").contains("\"createdAt\":\"2024-01-01T12:00:00\"");
+        assertThat(lines[1]).startsWith("{\"id\":2,");
+    }
+
+    @Test
+    void exportOrders_ShouldWriteNothing_WhenNoOrdersMatch() throws Exception {
+        OrderFilter filter = new OrderFilter();
+        when(orderRepository.streamSummaries(filter, 500)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = orderExportService.exportOrders(filter, out);
+
+        assertThat(exported).isZero();
+        assertThat(out.size()).isZero();
+    }
+}
@@ -2,20 +2,34 @@ package com.example.order.service;
 
 import com.example.common.dto.OrderDTO;
 import com.example.common.dto.OrderItemDTO;
+import com.example.common.dto.OrderStatusUpdateDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderCursor;
+import com.example.order.dto.OrderFilter;
 import com.example.order.dto.OrderItemRequest;
+import com.example.order.dto.OrderPage;
 import com.example.order.dto.OrderRequest;
+import com.example.order.dto.OrderStatusEvent;
+import com.example.order.dto.OrderSummary;
+import com.example.order.exception.InvalidCursorException;
+import com.example.order.exception.InvalidStatusTransitionException;
 import com.example.order.exception.OrderNotFoundException;
 import com.example.order.mapper.OrderMapper;
 import com.example.order.model.Order;
+import com.example.order.model.OrderStatusHistory;
+import com.example.order.repository.OrderBatchWriter;
 import com.example.order.repository.OrderRepository;
+import com.example.order.repository.OrderStatusHistoryRepository;
 import com.example.order.security.CustomUserDetails;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -28,9 +42,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -43,12 +59,36 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderStatusHistoryRepository statusHistoryRepository;
+
+    @Mock
+    private OrderBatchWriter orderBatchWriter;
+
     @Mock
     private KafkaTemplate<String, Object> kafkaTemplate;
 
+    @Mock
+    private OutboxService outboxService;
+
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private IdempotencyKeyCache idempotencyKeyCache;
+
+    @Mock
+    private OrderReadCache orderReadCache;
+
+    @Mock
+    private OrderStatusMetrics statusMetrics;
+
+    @Mock
+    private OrderStatistics orderStatistics;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -61,7 +101,7 @@ class OrderServiceTest {
         order = new Order();
         order.setId(1L);
         order.setUserId(2L);
-        order.setTotalAmount(new BigDecimal("100.0"));
+        order.setTotalAmount(Money.parse("100.0"));
         order.setStatus(OrderStatus.PAID);
         order.setCreatedAt(LocalDateTime.now());
         order.setItems(new ArrayList<>());
@@ -85,9 +125,11 @@ class OrderServiceTest {
 
     @Test
     void getOrder_ShouldReturnOrder_WhenExists() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        readThroughCache();
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+        when(orderMapper.toDto(order)).thenReturn(OrderDTO.builder().id(1L).build());
 
-        Order foundOrder = orderService.getOrder(1L);
+        OrderDTO foundOrder = orderService.getOrder(1L);
 
         assertThat(foundOrder).isNotNull();
         assertThat(foundOrder.getId()).isEqualTo(1L);
@@ -95,34 +137,167 @@ class OrderServiceTest {
 
     @Test
     void getOrder_ShouldThrowException_WhenNotFound() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        readThroughCache();
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.empty());
 
         assertThrows(OrderNotFoundException.class, () -> orderService.getOrder(1L));
     }
 
+    @Test
+    void getOrder_ShouldNotLoadOrder_WhenCached() {
+        OrderDTO cached = OrderDTO.builder().id(1L).build();
+        when(orderReadCache.get(eq(1L), any())).thenReturn(cached);
+
+        assertThat(orderService.getOrder(1L)).isSameAs(cached);
+        verifyNoInteractions(orderRepository);
+    }
+
     @Test
     void updateOrderStatus_ShouldUpdateOrderStatus() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        order.getStatusHistoryDTO().add(OrderService.historyEntry(order, OrderStatus.PAID, "Paid"));
+        when(orderRepository.updateStatusIfIn(1L, OrderStatus.INVENTORY_FAILED, OrderStatus.INVENTORY_FAILED.predecessors()))
+                .thenAnswer(invocation -> {
+                    order.setStatus(OrderStatus.INVENTORY_FAILED);
+                    return 1;
+                });
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+        when(statusHistoryRepository.save(any(OrderStatusHistory.class))).then(returnsFirstArg());
+        OrderStatusEvent event = OrderStatusEvent.builder().orderId(1L).status(OrderStatus.INVENTORY_FAILED).build();
+        when(orderMapper.toEvent(any(OrderStatusHistory.class))).thenReturn(event);
 
         Order updatedOrder = orderService.updateOrderStatus(1L, OrderStatus.INVENTORY_FAILED, "INVENTORY FAILED");
 
         assertThat(updatedOrder.getStatus()).isEqualTo(OrderStatus.INVENTORY_FAILED);
         assertThat(updatedOrder.getStatusHistoryDTO()).isNotEmpty();
-        verify(orderRepository).save(any(Order.class));
+        verify(statusHistoryRepository).save(argThat(entry ->
+                entry.getOrder() == order && entry.getStatus() == OrderStatus.INVENTORY_FAILED));
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(statusMetrics).applied(OrderStatus.INVENTORY_FAILED);
+        verify(orderStatistics).recordTransitionAfterCommit(OrderStatus.PAID, OrderStatus.INVENTORY_FAILED);
+        verify(eventPublisher).publishEvent(event);
+        verify(orderReadCache).invalidateAfterCommit(1L);
+    }
+
+    @Test
+    void updateOrderStatus_ShouldRejectTransitionNotAllowedFromCurrentStatus() {
+        when(orderRepository.updateStatusIfIn(eq(1L), eq(OrderStatus.PAID), any())).thenReturn(0);
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(OrderStatus.INVENTORY_DONE));
+
+        InvalidStatusTransitionException exception = assertThrows(InvalidStatusTransitionException.class,
+                () -> orderService.updateOrderStatus(1L, OrderStatus.PAID, "late"));
+
+        assertThat(exception.getCurrentStatus()).isEqualTo(OrderStatus.INVENTORY_DONE);
+        verify(statusMetrics).rejected(OrderStatus.PAID);
+        verifyNoInteractions(statusHistoryRepository, eventPublisher);
+        verify(orderReadCache, never()).invalidateAfterCommit(any());
+    }
+
+    @Test
+    void updateOrderStatus_ShouldThrowNotFound_WhenOrderDoesNotExist() {
+        when(orderRepository.updateStatusIfIn(eq(1L), eq(OrderStatus.PAID), any())).thenReturn(0);
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class, () -> orderService.updateOrderStatus(1L, OrderStatus.PAID, "paid"));
+        verifyNoInteractions(statusMetrics);
+    }
+
+    @Test
+    void updateOrderStatus_ShouldNeverMoveBackToRegistered() {
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(OrderStatus.PAID));
+
+        assertThrows(InvalidStatusTransitionException.class,
+                () -> orderService.updateOrderStatus(1L, OrderStatus.REGISTERED, "reset"));
+        verify(orderRepository, never()).updateStatusIfIn(any(), any(), any());
+    }
+
+    @Test
+    void applyStatusUpdates_ShouldRecordEveryTransitionAndWriteLastStatusOnce() {
+        Order other = new Order();
+        other.setId(2L);
+        other.setStatus(OrderStatus.REGISTERED);
+        when(orderRepository.lockAllById(any())).thenReturn(List.of(order, other));
+        when(orderMapper.toEvent(any(OrderStatusHistory.class))).thenReturn(new OrderStatusEvent());
+        List<OrderStatusUpdateDTO> updates = List.of(
+                update(1L, OrderStatus.INVENTORY_DONE),
+                update(2L, OrderStatus.PAID),
+                update(1L, OrderStatus.DELIVERED),
+                update(3L, OrderStatus.PAID));
+
+        int applied = orderService.applyStatusUpdates(updates);
+
+        assertThat(applied).isEqualTo(3);
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(other.getStatus()).isEqualTo(OrderStatus.PAID);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<OrderStatusHistory>> history = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertHistory(history.capture());
+        assertThat(history.getValue()).extracting(OrderStatusHistory::getStatus)
+                .containsExactly(OrderStatus.INVENTORY_DONE, OrderStatus.DELIVERED, OrderStatus.PAID);
+        verify(eventPublisher, times(3)).publishEvent(any(OrderStatusEvent.class));
+        verify(orderReadCache).invalidateAfterCommit(1L);
+        verify(orderReadCache).invalidateAfterCommit(2L);
+        verify(orderReadCache, never()).invalidateAfterCommit(3L);
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void applyStatusUpdates_ShouldSkipStaleAndDuplicateUpdates() {
+        order.setStatus(OrderStatus.INVENTORY_DONE);
+        when(orderRepository.lockAllById(any())).thenReturn(List.of(order));
+        when(orderMapper.toEvent(any(OrderStatusHistory.class))).thenReturn(new OrderStatusEvent());
+        List<OrderStatusUpdateDTO> updates = List.of(
+                update(1L, OrderStatus.PAID),
+                update(1L, OrderStatus.DELIVERED),
+                update(1L, OrderStatus.DELIVERED));
+
+        int applied = orderService.applyStatusUpdates(updates);
+
+        assertThat(applied).isEqualTo(1);
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        verify(statusMetrics).applied(OrderStatus.DELIVERED);
+        verify(statusMetrics).rejected(OrderStatus.PAID);
+        verify(statusMetrics).rejected(OrderStatus.DELIVERED);
+        verify(orderStatistics).recordTransitionAfterCommit(OrderStatus.INVENTORY_DONE, OrderStatus.DELIVERED);
+        verifyNoMoreInteractions(orderStatistics);
+        verify(eventPublisher, times(1)).publishEvent(any(OrderStatusEvent.class));
+    }
+
+    @Test
+    void deleteOrder_ShouldDeleteOrderAndUpdateStatistics() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        orderService.deleteOrder(1L);
+
+        verify(orderRepository).delete(order);
+        verify(orderReadCache).invalidateAfterCommit(1L);
+        verify(orderStatistics).recordDeletedAfterCommit(order);
+    }
+
+    @Test
+    void deleteOrder_ShouldThrowException_WhenNotFound() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class, () -> orderService.deleteOrder(1L));
+        verifyNoInteractions(orderStatistics);
+    }
+
+    @Test
+    void getLatestStatus_ShouldThrowException_WhenOrderHasNoHistory() {
+        when(statusHistoryRepository.findFirstByOrderIdOrderByIdDesc(1L)).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class, () -> orderService.getLatestStatus(1L));
     }
 
     @Test
-    void createOrder_ShouldCreateAndSendOrder() {
+    void createOrder_ShouldCreateOrderAndEnqueueEvent() {
         // Arrange
         mockSecurityContext();
         OrderRequest orderRequest = createValidOrderRequest();
         Order savedOrder = createSavedOrder();
+        OrderDTO orderDTO = new OrderDTO();
 
         when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
-        when(kafkaTemplate.send(eq(ORDER_CREATED_TOPIC), any(OrderDTO.class)))
-            .thenReturn(CompletableFuture.completedFuture(null));
-        when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDTO());
+        when(orderMapper.toDto(any(Order.class))).thenReturn(orderDTO);
 
         // Act
         Order result = orderService.createOrder(orderRequest);
@@ -130,54 +305,121 @@ class OrderServiceTest {
         // Assert
         assertThat(result).isNotNull();
         assertThat(result.getStatus()).isEqualTo(OrderStatus.REGISTERED);
-        assertThat(result.getTotalAmount()).isEqualTo(new BigDecimal("100.0"));
+        assertThat(result.getTotalAmount()).isEqualTo(Money.parse("100.0"));
         assertThat(result.getItems()).isNotEmpty();
-        verify(kafkaTemplate).send(eq(ORDER_CREATED_TOPIC), any(OrderDTO.class));
         verify(orderRepository).save(any(Order.class));
+        verify(outboxService).enqueue(ORDER_CREATED_TOPIC, "2", 1L, orderDTO);
+        verify(orderReadCache).putAfterCommit(orderDTO);
+        verify(orderStatistics).recordCreatedAfterCommit(savedOrder);
     }
 
     @Test
-    void createOrder_ShouldHandleKafkaError() {
+    void createOrder_ShouldNotTalkToKafkaDirectly() {
         // Arrange
         mockSecurityContext();
         OrderRequest orderRequest = createValidOrderRequest();
-        Order savedOrder = createSavedOrder();
 
-        when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
-        when(kafkaTemplate.send(eq(ORDER_CREATED_TOPIC), any(OrderDTO.class)))
-            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Kafka error")));
+        when(orderRepository.save(any(Order.class))).thenReturn(createSavedOrder());
         when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDTO());
 
         // Act
-        Order result = orderService.createOrder(orderRequest);
+        orderService.createOrder(orderRequest);
 
         // Assert
-        assertThat(result).isNotNull();
-        assertThat(result.getStatus()).isEqualTo(OrderStatus.REGISTERED);
-        verify(kafkaTemplate).send(eq(ORDER_CREATED_TOPIC), any(OrderDTO.class));
+        verifyNoInteractions(kafkaTemplate);
     }
 
     @Test
-    void getAllOrders_ShouldReturnAllOrders() {
+    void createOrder_ShouldStoreIdempotencyKeyAndRememberIt() {
         // Arrange
-        Order order2 = new Order();
-        order2.setId(2L);
-        order2.setUserId(2L);
-        order2.setTotalAmount(new BigDecimal("200.0"));
-        order2.setStatus(OrderStatus.REGISTERED);
-        order2.setCreatedAt(LocalDateTime.now());
-        order2.setItems(new ArrayList<>());
-        order2.setStatusHistoryDTO(new ArrayList<>());
-
-        List<Order> orders = List.of(order, order2);
-        when(orderRepository.findAll()).thenReturn(orders);
+        mockSecurityContext();
+        when(orderRepository.save(any(Order.class))).thenReturn(createSavedOrder());
+        when(orderMapper.toDto(any(Order.class))).thenReturn(new OrderDTO());
 
         // Act
-        List<Order> result = orderService.getAllOrders();
+        orderService.createOrder(createValidOrderRequest(), "key-1");
 
         // Assert
-        assertThat(result).hasSize(2).containsExactlyElementsOf(orders);
-        verify(orderRepository).findAll();
+        verify(orderRepository).save(argThat(saved -> "key-1".equals(saved.getIdempotencyKey())));
+        verify(idempotencyKeyCache).rememberAfterCommit(2L, "key-1", 1L);
+    }
+
+    @Test
+    void createOrder_ShouldReturnExistingOrder_WhenIdempotencyKeyIsCached() {
+        // Arrange
+        mockSecurityContext();
+        when(idempotencyKeyCache.find(2L, "key-1")).thenReturn(1L);
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+
+        // Act
+        Order result = orderService.createOrder(createValidOrderRequest(), "key-1");
+
+        // Assert
+        assertThat(result).isSameAs(order);
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void getOrderByIdempotencyKey_ShouldThrowException_WhenKeyIsUnknown() {
+        mockSecurityContext();
+        when(orderRepository.findWithItemsByUserIdAndIdempotencyKey(2L, "key-1")).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderByIdempotencyKey("key-1"));
+    }
+
+    @Test
+    void getOrders_ShouldReturnLastPageWithoutCursor() {
+        // Arrange
+        OrderFilter filter = OrderFilter.builder().userId(2L).build();
+        List<OrderSummary> rows = List.of(summary(2L, LocalDateTime.now()), summary(1L, LocalDateTime.now()));
+        when(orderRepository.findSummaries(filter, null, 3)).thenReturn(rows);
+
+        // Act
+        OrderPage page = orderService.getOrders(filter, null, 2);
+
+        // Assert
+        assertThat(page.getItems()).containsExactlyElementsOf(rows);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getOrders_ShouldReturnCursorOfLastItem_WhenMoreRowsExist() {
+        // Arrange
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        OrderFilter filter = new OrderFilter();
+        List<OrderSummary> rows = List.of(
+                summary(3L, createdAt), summary(2L, createdAt), summary(1L, createdAt.minusMinutes(1)));
+        when(orderRepository.findSummaries(filter, null, 3)).thenReturn(rows);
+
+        // Act
+        OrderPage page = orderService.getOrders(filter, null, 2);
+
+        // Assert
+        assertThat(page.getItems()).extracting(OrderSummary::getId).containsExactly(3L, 2L);
+        OrderCursor cursor = OrderCursor.decode(page.getNextCursor());
+        assertThat(cursor.getId()).isEqualTo(2L);
+        assertThat(cursor.getCreatedAt()).isEqualTo(createdAt);
+    }
+
+    @Test
+    void getOrders_ShouldPassDecodedCursorToRepository() {
+        // Arrange
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2024, 1, 1, 12, 0), 10L);
+        OrderFilter filter = new OrderFilter();
+        when(orderRepository.findSummaries(filter, cursor, 51)).thenReturn(List.of());
+
+        // Act
+        OrderPage page = orderService.getOrders(filter, cursor.encode(), 50);
+
+        // Assert
+        assertThat(page.getItems()).isEmpty();
+        verify(orderRepository).findSummaries(filter, cursor, 51);
+    }
+
+    @Test
+    void getOrders_ShouldRejectMalformedCursor() {
+        assertThrows(InvalidCursorException.class, () -> orderService.getOrders(new OrderFilter(), "not-a-cursor", 10));
     }
 
     @Test
@@ -228,6 +470,20 @@ class OrderServiceTest {
         assertThrows(IllegalStateException.class, () -> orderService.createOrder(orderRequest));
     }
 
+    private OrderSummary summary(Long id, LocalDateTime createdAt) {
+        return new OrderSummary(id, 2L, Money.parse("100.0"), OrderStatus.REGISTERED, createdAt);
+    }
+
+    private static OrderStatusUpdateDTO update(Long orderId, OrderStatus status) {
+        return new OrderStatusUpdateDTO(orderId, status, status.name(), LocalDateTime.now());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readThroughCache() {
+        when(orderReadCache.get(eq(1L), any())).thenAnswer(invocation ->
+                ((Function<Long, OrderDTO>) invocation.getArgument(1)).apply(1L));
+    }
+
     private OrderRequest createValidOrderRequest() {
         OrderRequest orderRequest = new OrderRequest();
         orderRequest.setItems(List.of(new OrderItemRequest(1L, 2, new BigDecimal("50.0"))));
@@ -239,10 +495,10 @@ class OrderServiceTest {
         Order savedOrder = new Order();
         savedOrder.setId(1L);
         savedOrder.setUserId(2L);
-        savedOrder.setTotalAmount(new BigDecimal("100.0"));
+        savedOrder.setTotalAmount(Money.parse("100.0"));
         savedOrder.setStatus(OrderStatus.REGISTERED);
         savedOrder.setCreatedAt(LocalDateTime.now());
-        savedOrder.setItems(List.of(new OrderItemDTO(1L, 2, new BigDecimal("50.0"))));
+        savedOrder.setItems(List.of(new OrderItemDTO(1L, 2, Money.parse("50.0"))));
         savedOrder.setStatusHistoryDTO(new ArrayList<>());
         return savedOrder;
     }
@@ -0,0 +1,123 @@
+package com.example.order.service;
+
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.order.dto.OrderStats;
+import com.example.order.dto.OrderStatsBucket;
+import com.example.order.model.Order;
+import com.example.order.repository.OrderStatisticsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatisticsTest {
+
+    @Mock
+    private OrderStatisticsRepository statisticsRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderStatistics orderStatistics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        orderStatistics = new OrderStatistics(statisticsRepository, meterRegistry, Duration.ofDays(31));
+    }
+
+    @Test
+    void rebuild_ShouldLoadCountsAndHourlyTotalsFromDatabase() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        when(statisticsRepository.countByStatus()).thenReturn(Map.of(OrderStatus.PAID, 3L, OrderStatus.DELIVERED, 2L));
+        when(statisticsRepository.hourlyTotalsSince(any())).thenReturn(List.of(
+                new OrderStatisticsRepository.HourlyTotal(hour, 4, Money.parse("40.00")),
+                // The same hour can come from both the hot and the archive table
+                new OrderStatisticsRepository.HourlyTotal(hour, 1, Money.parse("5.50"))));
+
+        orderStatistics.rebuild();
+        OrderStats stats = orderStatistics.snapshot(1, 1);
+
+        assertThat(stats.getCountsByStatus())
+                .containsEntry(OrderStatus.PAID, 3L)
+                .containsEntry(OrderStatus.DELIVERED, 2L)
+                .containsEntry(OrderStatus.REGISTERED, 0L);
+        assertThat(stats.getHourly()).singleElement().satisfies(bucket -> {
+            assertThat(bucket.getOrders()).isEqualTo(5);
+            assertThat(bucket.getRevenue()).isEqualTo(Money.parse("45.50"));
+        });
+        assertThat(meterRegistry.get("orders.status.current").tag("status", "PAID").gauge().value()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("orders.revenue.today").gauge().value()).isEqualTo(45.5);
+    }
+
+    @Test
+    void recordCreatedAndTransition_ShouldMoveCountsBetweenStatuses() {
+        orderStatistics.recordCreatedAfterCommit(order(OrderStatus.REGISTERED, "19.99", LocalDateTime.now()));
+        orderStatistics.recordCreatedAfterCommit(order(OrderStatus.REGISTERED, "0.01", LocalDateTime.now()));
+        orderStatistics.recordTransitionAfterCommit(OrderStatus.REGISTERED, OrderStatus.PAID);
+
+        OrderStats stats = orderStatistics.snapshot(24, 7);
+
+        assertThat(stats.getCountsByStatus())
+                .containsEntry(OrderStatus.REGISTERED, 1L)
+                .containsEntry(OrderStatus.PAID, 1L);
+        assertThat(stats.getHourly()).hasSize(24);
+        assertThat(stats.getDaily()).hasSize(7);
+        OrderStatsBucket today = stats.getDaily().get(6);
+        assertThat(today.getOrders()).isEqualTo(2);
+        assertThat(today.getRevenue()).isEqualTo(Money.parse("20.00"));
+    }
+
+    @Test
+    void recordDeleted_ShouldReverseCreation() {
+        Order order = order(OrderStatus.PAID, "12.00", LocalDateTime.now());
+        orderStatistics.recordCreatedAfterCommit(order);
+
+        orderStatistics.recordDeletedAfterCommit(order);
+
+        OrderStats stats = orderStatistics.snapshot(1, 1);
+        assertThat(stats.getCountsByStatus()).containsEntry(OrderStatus.PAID, 0L);
+        assertThat(stats.getDaily().get(0).getRevenue()).isEqualTo(Money.parse("0"));
+    }
+
+    @Test
+    void recordCreated_ShouldCountStatusButNotTotals_WhenOrderIsOlderThanRetention() {
+        orderStatistics.recordCreatedAfterCommit(order(OrderStatus.DELIVERED, "10.00", LocalDateTime.now().minusDays(40)));
+
+        OrderStats stats = orderStatistics.snapshot(1, 31);
+
+        assertThat(stats.getCountsByStatus()).containsEntry(OrderStatus.DELIVERED, 1L);
+        assertThat(stats.getDaily()).allSatisfy(bucket -> assertThat(bucket.getOrders()).isZero());
+    }
+
+    @Test
+    void recordCreated_ShouldNotLoseUpdatesUnderConcurrency() {
+        IntStream.range(0, 10_000).parallel().forEach(i ->
+                orderStatistics.recordCreatedAfterCommit(order(OrderStatus.REGISTERED, "1.00", LocalDateTime.now())));
+
+        OrderStats stats = orderStatistics.snapshot(1, 1);
+        assertThat(stats.getCountsByStatus()).containsEntry(OrderStatus.REGISTERED, 10_000L);
+        assertThat(stats.getDaily().get(0).getRevenue()).isEqualTo(Money.parse("10000.00"));
+    }
+
+    private static Order order(OrderStatus status, String amount, LocalDateTime createdAt) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setTotalAmount(Money.parse(amount));
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.order.service;
+
+import com.example.order.model.OutboxEvent;
+import com.example.order.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final String TOPIC = "order-created";
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> outboxKafkaTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository, outboxKafkaTemplate, transactionManager);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 10);
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeoutMs", 1000L);
+    }
+
+    @Test
+    void publishNextBatch_ShouldSendAllEventsFlushOnceAndDeletePublished() {
+        List<OutboxEvent> batch = List.of(event(1L, "{\"id\":1}"), event(2L, "{\"id\":2}"));
+        when(outboxEventRepository.lockNextBatch(10)).thenReturn(batch);
+        when(outboxKafkaTemplate.send(TOPIC, null, "{\"id\":1}")).thenReturn(CompletableFuture.completedFuture(null));
+        when(outboxKafkaTemplate.send(TOPIC, null, "{\"id\":2}")).thenReturn(CompletableFuture.completedFuture(null));
+
+        int published = outboxRelay.publishNextBatch();
+
+        assertThat(published).isEqualTo(2);
+        verify(outboxKafkaTemplate, times(1)).flush();
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void publishNextBatch_ShouldKeepEventsWhoseSendFailed() {
+        List<OutboxEvent> batch = List.of(event(1L, "first"), event(2L, "second"));
+        when(outboxEventRepository.lockNextBatch(10)).thenReturn(batch);
+        when(outboxKafkaTemplate.send(TOPIC, null, "first"))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Kafka error")));
+        when(outboxKafkaTemplate.send(TOPIC, null, "second")).thenReturn(CompletableFuture.completedFuture(null));
+
+        int published = outboxRelay.publishNextBatch();
+
+        assertThat(published).isEqualTo(1);
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    @Test
+    void publishNextBatch_ShouldDoNothing_WhenOutboxIsEmpty() {
+        when(outboxEventRepository.lockNextBatch(anyInt())).thenReturn(List.of());
+
+        int published = outboxRelay.publishNextBatch();
+
+        assertThat(published).isZero();
+        verifyNoInteractions(outboxKafkaTemplate);
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private OutboxEvent event(Long id, String payload) {
+        return OutboxEvent.builder()
+                .id(id)
+                .aggregateId(id)
+                .topic(TOPIC)
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.payment.config;
 
 import com.example.common.dto.OrderDTO;
+import com.example.common.dto.OrderStatusUpdateDTO;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -12,10 +13,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +34,30 @@ public class KafkaConfig {
     @Value("${kafka.topics.payment-failed}")
     private String paymentFailedTopic;
 
+    @Value("${kafka.topics.payment-captured}")
+    private String paymentCapturedTopic;
+
+    @Value("${kafka.topics.capture-failed}")
+    private String captureFailedTopic;
+
+    @Value("${kafka.partitions.order-created:1}")
+    private int orderCreatedPartitions;
+
+    @Value("${payments.listener.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${payments.listener.batch.max-size:500}")
+    private int batchMaxSize;
+
+    @Value("${payments.processing.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${payments.listener.batch.max-wait:100ms}")
+    private Duration batchMaxWait;
+
+    @Value("${payments.listener.batch.min-bytes:65536}")
+    private int batchMinBytes;
+
     @Bean
     public NewTopic paymentSuccessTopic() {
         return TopicBuilder.name(paymentSuccessTopic)
@@ -47,8 +74,46 @@ public class KafkaConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic paymentCapturedTopic() {
+        return TopicBuilder.name(paymentCapturedTopic)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic captureFailedTopic() {
+        return TopicBuilder.name(captureFailedTopic)
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
     public ConsumerFactory<String, OrderDTO> consumerFactory() {
+        return new DefaultKafkaConsumerFactory<>(consumerConfig());
+    }
+
+    /**
+     * The broker answers a fetch once it has min-bytes of records or max-wait has passed, so under
+     * load polls fill up to max-size orders and when idle an order waits at most max-wait.
+     * A poll is paid as a whole, so it may not hold more orders than can be pending at once.
+     */
+    @Bean
+    public ConsumerFactory<String, OrderDTO> orderCreatedBatchConsumerFactory() {
+        if (batchEnabled && batchMaxSize > maxInFlight) {
+            throw new IllegalStateException("payments.listener.batch.max-size=" + batchMaxSize
+                    + " exceeds payments.processing.max-in-flight=" + maxInFlight);
+        }
+        Map<String, Object> config = consumerConfig();
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxSize);
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, (int) batchMaxWait.toMillis());
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        return new DefaultKafkaConsumerFactory<>(config);
+    }
+
+    private Map<String, Object> consumerConfig() {
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, "payment-service");
@@ -59,8 +124,7 @@ public class KafkaConfig {
         config.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.common.dto");
         config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.common.dto.OrderDTO");
         config.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
-        
-        return new DefaultKafkaConsumerFactory<>(config);
+        return config;
     }
 
     @Bean
@@ -70,6 +134,49 @@ public class KafkaConfig {
         return factory;
     }
 
+    /**
+     * Payments complete asynchronously, so order-created records are acknowledged manually and
+     * possibly out of order; the container commits each offset once all earlier ones are acked.
+     * order-created is keyed by user, so a user's orders reach one consumer in order, and
+     * PaymentService debits them in that order while different users are paid in parallel.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> orderCreatedListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(orderCreatedPartitions);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    /**
+     * Held funds are captured asynchronously, so inventory-reserved records are acknowledged
+     * manually once the capture outcome is sent.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> inventoryReservedListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    /**
+     * Delivers each poll of order-created as one list. The listener acknowledges a batch once all
+     * of its results are published and the previous batch is acknowledged.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderDTO> orderCreatedBatchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderDTO> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(orderCreatedBatchConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(orderCreatedPartitions);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
     @Bean
     public ProducerFactory<String, OrderDTO> producerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -83,4 +190,21 @@ public class KafkaConfig {
     public KafkaTemplate<String, OrderDTO> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    @Bean
+    public ProducerFactory<String, OrderStatusUpdateDTO> orderStatusProducerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        // Retries must not reorder the status updates of one order
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean
+    public KafkaTemplate<String, OrderStatusUpdateDTO> orderStatusKafkaTemplate() {
+        return new KafkaTemplate<>(orderStatusProducerFactory());
+    }
 }
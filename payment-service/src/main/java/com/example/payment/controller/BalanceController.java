@@ -1,5 +1,6 @@
 package com.example.payment.controller;
 
+import com.example.common.money.Money;
 import com.example.payment.dto.BalanceDTO;
 import com.example.payment.service.BalanceService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -48,7 +49,7 @@ public class BalanceController {
     public ResponseEntity<BalanceDTO> updateBalance(
             @PathVariable Long userId,
             @RequestParam BigDecimal amount) {
-        return ResponseEntity.ok(balanceService.updateBalance(userId, amount));
+        return ResponseEntity.ok(balanceService.updateBalance(userId, Money.of(amount)));
     }
 
     @DeleteMapping("/{userId}")
@@ -1,5 +1,6 @@
 package com.example.payment.controller;
 
+import com.example.common.money.Money;
 import com.example.payment.model.Payment;
 import com.example.payment.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -25,7 +26,7 @@ public class PaymentController {
     public ResponseEntity<Boolean> processPayment(@RequestParam Long orderId, 
                                                 @RequestParam Long userId, 
                                                 @RequestParam BigDecimal amount) {
-        boolean success = paymentService.processPayment(orderId, userId, amount);
+        boolean success = paymentService.processPayment(orderId, userId, Money.of(amount));
         return ResponseEntity.ok(success);
     }
 
@@ -40,7 +41,7 @@ public class PaymentController {
     public ResponseEntity<Void> refundPayment(@RequestParam Long orderId, 
                                             @RequestParam Long userId, 
                                             @RequestParam BigDecimal amount) {
-        paymentService.refundPayment(orderId, userId, amount);
+        paymentService.refundPayment(orderId, userId, Money.of(amount));
         return ResponseEntity.ok().build();
     }
 
@@ -1,17 +1,16 @@
 package com.example.payment.dto;
 
+import com.example.common.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class BalanceDTO {
     private Long userId;
-    private BigDecimal amount;
+    private Money amount;
 }
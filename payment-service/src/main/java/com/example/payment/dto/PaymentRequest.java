@@ -0,0 +1,6 @@
+package com.example.payment.dto;
+
+import com.example.common.money.Money;
+
+public record PaymentRequest(Long orderId, Long userId, Money amount) {
+}
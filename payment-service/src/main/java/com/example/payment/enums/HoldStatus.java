@@ -0,0 +1,7 @@
+package com.example.payment.enums;
+
+public enum HoldStatus {
+    HELD,
+    CAPTURED,
+    RELEASED
+}
@@ -0,0 +1,6 @@
+package com.example.payment.exceptions;
+public class DuplicatePaymentException extends PaymentException {
+    public DuplicatePaymentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.payment.exceptions;
+
+public class PaymentGatewayException extends RuntimeException {
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+}
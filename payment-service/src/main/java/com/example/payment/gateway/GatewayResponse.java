@@ -0,0 +1,16 @@
+package com.example.payment.gateway;
+
+/**
+ * Outcome of a processor call. A decline is a regular response; processor outages complete
+ * the future exceptionally with a {@link com.example.payment.exceptions.PaymentGatewayException}.
+ */
+public record GatewayResponse(boolean approved, String reference, String declineReason) {
+
+    public static GatewayResponse approved(String reference) {
+        return new GatewayResponse(true, reference, null);
+    }
+
+    public static GatewayResponse declined(String reason) {
+        return new GatewayResponse(false, null, reason);
+    }
+}
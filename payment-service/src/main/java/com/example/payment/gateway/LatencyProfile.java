@@ -0,0 +1,33 @@
+package com.example.payment.gateway;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Latency distributions of the simulated processor.
+ */
+public enum LatencyProfile {
+    /** Every call takes the mean latency. */
+    FIXED {
+        @Override
+        long sampleMillis(RandomGenerator random, long meanMs, long stdDevMs, double tailProbability, double tailMultiplier) {
+            return meanMs;
+        }
+    },
+    /** Gaussian around the mean, cut off at zero. */
+    NORMAL {
+        @Override
+        long sampleMillis(RandomGenerator random, long meanMs, long stdDevMs, double tailProbability, double tailMultiplier) {
+            return Math.max(0, Math.round(random.nextGaussian(meanMs, stdDevMs)));
+        }
+    },
+    /** Gaussian body, plus a share of calls that take {@code tailMultiplier} times as long. */
+    LONG_TAIL {
+        @Override
+        long sampleMillis(RandomGenerator random, long meanMs, long stdDevMs, double tailProbability, double tailMultiplier) {
+            long body = NORMAL.sampleMillis(random, meanMs, stdDevMs, tailProbability, tailMultiplier);
+            return random.nextDouble() < tailProbability ? Math.round(body * tailMultiplier) : body;
+        }
+    };
+
+    abstract long sampleMillis(RandomGenerator random, long meanMs, long stdDevMs, double tailProbability, double tailMultiplier);
+}
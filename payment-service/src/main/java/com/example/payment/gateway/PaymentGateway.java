@@ -0,0 +1,19 @@
+package com.example.payment.gateway;
+
+import com.example.common.money.Money;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * External payment processor. All calls are asynchronous, so a slow processor never pins a
+ * thread or a DB connection; calls are keyed by the payment's transaction id, which makes
+ * retries idempotent on the processor side.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<GatewayResponse> authorize(String transactionId, Long userId, Money amount);
+
+    CompletableFuture<GatewayResponse> capture(String transactionId, Money amount);
+
+    CompletableFuture<GatewayResponse> refund(String transactionId, Money amount);
+}
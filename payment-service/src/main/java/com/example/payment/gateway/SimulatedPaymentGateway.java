@@ -0,0 +1,113 @@
+package com.example.payment.gateway;
+
+import com.example.common.money.Money;
+import com.example.payment.exceptions.PaymentGatewayException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Local stand-in for the payment processor. Responses are completed by a single timer thread
+ * after a latency drawn from the configured {@link LatencyProfile}, so any number of calls can
+ * be in flight without occupying threads. Authorizations are declined at {@code decline-rate};
+ * any call fails with a processor error at {@code error-rate}.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.gateway.type", havingValue = "simulated", matchIfMissing = true)
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final LatencyProfile latencyProfile;
+    private final long meanLatencyMs;
+    private final long latencyStdDevMs;
+    private final double tailProbability;
+    private final double tailMultiplier;
+    private final double declineRate;
+    private final double errorRate;
+    private final ScheduledExecutorService timer;
+
+    @Autowired
+    public SimulatedPaymentGateway(
+            @Value("${payments.gateway.simulated.latency-profile:fixed}") LatencyProfile latencyProfile,
+            @Value("${payments.gateway.simulated.mean-latency:5s}") Duration meanLatency,
+            @Value("${payments.gateway.simulated.latency-std-dev:1s}") Duration latencyStdDev,
+            @Value("${payments.gateway.simulated.tail-probability:0.01}") double tailProbability,
+            @Value("${payments.gateway.simulated.tail-multiplier:20}") double tailMultiplier,
+            @Value("${payments.gateway.simulated.decline-rate:0.0}") double declineRate,
+            @Value("${payments.gateway.simulated.error-rate:0.0}") double errorRate) {
+        this(latencyProfile, meanLatency, latencyStdDev, tailProbability, tailMultiplier, declineRate, errorRate,
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "simulated-payment-gateway");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    public SimulatedPaymentGateway(LatencyProfile latencyProfile,
+                                   Duration meanLatency,
+                                   Duration latencyStdDev,
+                                   double tailProbability,
+                                   double tailMultiplier,
+                                   double declineRate,
+                                   double errorRate,
+                                   ScheduledExecutorService timer) {
+        this.latencyProfile = latencyProfile;
+        this.meanLatencyMs = meanLatency.toMillis();
+        this.latencyStdDevMs = latencyStdDev.toMillis();
+        this.tailProbability = tailProbability;
+        this.tailMultiplier = tailMultiplier;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+        this.timer = timer;
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> authorize(String transactionId, Long userId, Money amount) {
+        return respond("authorize", transactionId, () -> ThreadLocalRandom.current().nextDouble() < declineRate
+                ? GatewayResponse.declined("Declined by processor")
+                : GatewayResponse.approved("auth-" + transactionId));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> capture(String transactionId, Money amount) {
+        return respond("capture", transactionId, () -> GatewayResponse.approved("capture-" + transactionId));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResponse> refund(String transactionId, Money amount) {
+        return respond("refund", transactionId, () -> GatewayResponse.approved("refund-" + transactionId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private CompletableFuture<GatewayResponse> respond(String operation, String transactionId,
+                                                       Supplier<GatewayResponse> outcome) {
+        CompletableFuture<GatewayResponse> response = new CompletableFuture<>();
+        long latencyMs = latencyProfile.sampleMillis(ThreadLocalRandom.current(),
+                meanLatencyMs, latencyStdDevMs, tailProbability, tailMultiplier);
+        timer.schedule(() -> {
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                log.debug("Simulated processor error on {} for transaction {}", operation, transactionId);
+                response.completeExceptionally(new PaymentGatewayException(
+                        "Payment processor unavailable during " + operation));
+            } else {
+                response.complete(outcome.get());
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        return response;
+    }
+}
@@ -1,16 +1,28 @@
 package com.example.payment.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.exceptions.DuplicatePaymentException;
 import com.example.payment.service.PaymentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -18,7 +30,7 @@ public class OrderProcessingListener {
     
     private final PaymentService paymentService;
     private final KafkaTemplate<String, OrderDTO> kafkaTemplate;
-    private final OrderServiceClient orderServiceClient;
+    private final OrderStatusPublisher orderStatusPublisher;
 
     @Value("${kafka.topics.payment-success}")
     private String paymentSuccess;
@@ -26,55 +38,227 @@ public class OrderProcessingListener {
     @Value("${kafka.topics.payment-failed}")
     private String paymentFailed;
 
-    @KafkaListener(topics = "${kafka.topics.order-created}")
-    public void handleNewOrder(OrderDTO orderDTO) {
+    @Value("${kafka.topics.payment-captured}")
+    private String paymentCaptured;
+
+    @Value("${kafka.topics.capture-failed}")
+    private String captureFailed;
+
+    // Acknowledgement of the last batch handed over on each consumer thread
+    private final ThreadLocal<CompletableFuture<Void>> lastBatchAck =
+            ThreadLocal.withInitial(() -> CompletableFuture.completedFuture(null));
+
+    /**
+     * Hands the order to the asynchronous payment stage and returns, so the consumer thread is not
+     * held for the processor latency. The record is acknowledged once its result has been published;
+     * out-of-order acks are committed in offset order by the container.
+     */
+    @KafkaListener(topics = "${kafka.topics.order-created}", containerFactory = "orderCreatedListenerContainerFactory",
+            autoStartup = "#{!${payments.listener.batch.enabled:false}}")
+    public void handleNewOrder(OrderDTO orderDTO, Acknowledgment acknowledgment) {
         log.info("Received new order for processing. Order details: id={}, userId={}, totalAmount={}, status={}", 
             orderDTO.getId(), orderDTO.getUserId(), orderDTO.getTotalAmount(), orderDTO.getStatus());
-        
+
+        if (orderDTO.getStatus() != OrderStatus.REGISTERED) {
+            log.warn("Order {} is not in REGISTERED status. Current status: {}", orderDTO.getId(), orderDTO.getStatus());
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        log.info("Processing payment for order {} with amount {}", orderDTO.getId(), orderDTO.getTotalAmount());
+        CompletableFuture<Boolean> result;
         try {
-            if (orderDTO.getStatus() == OrderStatus.REGISTERED) {
-                log.info("Processing payment for order {} with amount {}", orderDTO.getId(), orderDTO.getTotalAmount());
-                boolean success = paymentService.processPayment(
-                    orderDTO.getId(),
-                    orderDTO.getUserId(),
-                    orderDTO.getTotalAmount()
-                );
-                
-                if (success) {
-                    orderDTO.setStatus(OrderStatus.PAID);
-                    orderServiceClient.updateOrderStatus(
-                        orderDTO.getId(),
-                        OrderStatus.PAID,
-                        "Payment successful for order"
-                    );
-                    kafkaTemplate.send(paymentSuccess, orderDTO.getId().toString(), orderDTO);
-                    log.info("Payment successful for order: {}, proceeding to inventory", orderDTO.getId());
-                } else {
-                    orderDTO.setStatus(OrderStatus.PAYMENT_FAILED);
-                    orderServiceClient.updateOrderStatus(
-                        orderDTO.getId(),
-                        OrderStatus.PAYMENT_FAILED,
-                            "Payment failed for order"
-                    );
-                    log.error("Payment failed for order: {} - insufficient funds", orderDTO.getId());
-                    kafkaTemplate.send(paymentFailed, orderDTO.getId().toString(), orderDTO);
-                }
-            } else {
+            result = paymentService.processPaymentAsync(
+                orderDTO.getId(),
+                orderDTO.getUserId(),
+                orderDTO.getTotalAmount()
+            );
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.handle((success, error) -> {
+            if (rejectedOnShutdown(error)) {
+                // Left unacknowledged, so the order is paid after the restart instead of failed now
+                log.warn("Payment for order {} interrupted by shutdown, leaving it for redelivery", orderDTO.getId());
+                return CompletableFuture.<Void>failedFuture(error);
+            }
+            return publishResult(orderDTO, success, error);
+        }).thenCompose(published -> published).whenComplete((ignored, error) -> {
+            if (error == null) {
+                acknowledgment.acknowledge();
+            } else if (!rejectedOnShutdown(error)) {
+                log.error("Result of order {} not published, leaving it for redelivery", orderDTO.getId(), error);
+            }
+        });
+    }
+
+    /**
+     * Batch mode ({@code payments.listener.batch.enabled}): a whole poll is paid with batched
+     * statements, and every order still gets its own success or failure event. The batch is
+     * acknowledged once all its results are published and the previous batch from this consumer
+     * is acknowledged, so the committed offset never passes an unfinished order.
+     */
+    @KafkaListener(topics = "${kafka.topics.order-created}", containerFactory = "orderCreatedBatchListenerContainerFactory",
+            autoStartup = "${payments.listener.batch.enabled:false}")
+    public void handleNewOrders(List<OrderDTO> orders, Acknowledgment acknowledgment) {
+        log.info("Received batch of {} orders for processing", orders.size());
+
+        List<OrderDTO> registered = new ArrayList<>(orders.size());
+        Set<Long> batchOrders = new HashSet<>();
+        for (OrderDTO orderDTO : orders) {
+            if (orderDTO.getStatus() != OrderStatus.REGISTERED) {
                 log.warn("Order {} is not in REGISTERED status. Current status: {}", orderDTO.getId(), orderDTO.getStatus());
+            } else if (batchOrders.add(orderDTO.getId())) {
+                registered.add(orderDTO);
+            } else {
+                // A redelivered order can appear twice in one poll; the first copy carries its result
+                log.info("Order {} appears again in the batch, skipping the copy", orderDTO.getId());
             }
+        }
+
+        List<CompletableFuture<Boolean>> results;
+        try {
+            results = paymentService.processPaymentsAsync(registered.stream()
+                    .map(orderDTO -> new PaymentRequest(orderDTO.getId(), orderDTO.getUserId(), orderDTO.getTotalAmount()))
+                    .toList());
         } catch (Exception e) {
-            String errorMessage = String.format("Error processing payment for order: %s. Error: %s",
+            results = registered.stream().map(orderDTO -> CompletableFuture.<Boolean>failedFuture(e)).toList();
+        }
+        CompletableFuture<?>[] published = new CompletableFuture<?>[registered.size() + 1];
+        for (int i = 0; i < registered.size(); i++) {
+            OrderDTO orderDTO = registered.get(i);
+            published[i] = results.get(i).handle((success, error) -> rejectedOnShutdown(error)
+                    ? CompletableFuture.<Void>failedFuture(error)
+                    : publishResult(orderDTO, success, error)).thenCompose(sent -> sent);
+        }
+        published[registered.size()] = lastBatchAck.get();
+        lastBatchAck.set(CompletableFuture.allOf(published).handle((ignored, error) -> {
+            if (error != null) {
+                // Committing this batch would skip an order whose result is not out, or an earlier
+                // batch that was not committed; all of them are redelivered
+                log.warn("Batch of {} orders not fully published, leaving it for redelivery", orders.size());
+                throw new CancellationException("Batch results not published");
+            }
+            acknowledgment.acknowledge();
+            return null;
+        }));
+    }
+
+    private static boolean rejectedOnShutdown(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    private CompletableFuture<Void> publishResult(OrderDTO orderDTO, Boolean success, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof DuplicatePaymentException) {
+            // Redelivered because the first delivery was not acknowledged, so its PAID may never
+            // have gone out; order-service drops the repeat if it did
+            log.info("Order {} is already paid, publishing its outcome again", orderDTO.getId());
+            return onPaymentResult(orderDTO, true);
+        } else if (cause != null) {
+            return onPaymentError(orderDTO, cause);
+        } else {
+            return onPaymentResult(orderDTO, success);
+        }
+    }
+
+    private CompletableFuture<Void> onPaymentResult(OrderDTO orderDTO, boolean success) {
+        try {
+            if (success) {
+                orderDTO.setStatus(OrderStatus.PAID);
+                log.info("Payment successful for order: {}, proceeding to inventory", orderDTO.getId());
+                // Inventory reports INVENTORY_DONE next, which order-service only accepts after PAID
+                return orderStatusPublisher.publish(
                     orderDTO.getId(),
-                    e.getMessage());
-            log.error(errorMessage);
-            orderDTO.setStatus(OrderStatus.UNEXPECTED_FAILURE);
-            orderServiceClient.updateOrderStatus(
+                    OrderStatus.PAID,
+                    "Payment successful for order"
+                ).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("Order {} not handed to inventory: PAID could not be published", orderDTO.getId());
+                    }
+                }).thenCompose(ignored -> kafkaTemplate.send(paymentSuccess, orderDTO.getId().toString(), orderDTO))
+                        .thenAccept(result -> { });
+            } else {
+                orderDTO.setStatus(OrderStatus.PAYMENT_FAILED);
+                log.error("Payment failed for order: {} - insufficient funds", orderDTO.getId());
+                return CompletableFuture.allOf(
+                        orderStatusPublisher.publish(
+                            orderDTO.getId(),
+                            OrderStatus.PAYMENT_FAILED,
+                                "Payment failed for order"
+                        ),
+                        kafkaTemplate.send(paymentFailed, orderDTO.getId().toString(), orderDTO));
+            }
+        } catch (Exception e) {
+            return onPaymentError(orderDTO, e);
+        }
+    }
+
+    private CompletableFuture<Void> onPaymentError(OrderDTO orderDTO, Throwable e) {
+        String errorMessage = String.format("Error processing payment for order: %s. Error: %s",
                 orderDTO.getId(),
-                OrderStatus.UNEXPECTED_FAILURE,
-                errorMessage
-            );
-            kafkaTemplate.send(paymentFailed, orderDTO.getId().toString(), orderDTO);
+                e.getMessage());
+        log.error(errorMessage);
+        orderDTO.setStatus(OrderStatus.UNEXPECTED_FAILURE);
+        return CompletableFuture.allOf(
+                orderStatusPublisher.publish(
+                    orderDTO.getId(),
+                    OrderStatus.UNEXPECTED_FAILURE,
+                    errorMessage
+                ),
+                kafkaTemplate.send(paymentFailed, orderDTO.getId().toString(), orderDTO));
+    }
+
+    /**
+     * The stock is reserved, so the order goes on to delivery through payment-captured. In the
+     * hold model ({@code payments.holds.enabled}) the held funds are captured first, so an order
+     * only ships once its money is taken; otherwise it was captured with the payment. If the
+     * capture fails, the order is marked UNEXPECTED_FAILURE and capture-failed has inventory put
+     * the stock back; the funds are already back on the balance. The record is acknowledged once
+     * the outcome is sent, so a capture cut short by a restart is retried.
+     */
+    @KafkaListener(topics = "${kafka.topics.inventory-reserved}", containerFactory = "inventoryReservedListenerContainerFactory")
+    public void handleInventoryReserved(OrderDTO orderDTO, Acknowledgment acknowledgment) {
+        if (orderDTO.getStatus() != OrderStatus.INVENTORY_DONE) {
+            log.warn("Order {} is not in INVENTORY_DONE status. Current status: {}", orderDTO.getId(), orderDTO.getStatus());
+            acknowledgment.acknowledge();
+            return;
+        }
+        CompletableFuture<Boolean> captured;
+        try {
+            captured = paymentService.captureHold(orderDTO.getId());
+        } catch (Exception e) {
+            captured = CompletableFuture.failedFuture(e);
         }
+        captured.handle((success, error) -> {
+            if (error == null && success) {
+                log.info("Held funds captured for order: {}, proceeding to delivery", orderDTO.getId());
+                return kafkaTemplate.send(paymentCaptured, orderDTO.getId().toString(), orderDTO).thenAccept(result -> { });
+            }
+            if (rejectedOnShutdown(error)) {
+                return CompletableFuture.<Void>failedFuture(error);
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            return onCaptureFailed(orderDTO, cause != null ? cause.getMessage() : "rejected by payment processor");
+        }).thenCompose(sent -> sent).whenComplete((ignored, error) -> {
+            if (error == null) {
+                acknowledgment.acknowledge();
+            } else {
+                log.warn("Capture outcome for order {} not sent, leaving it for redelivery", orderDTO.getId(), error);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> onCaptureFailed(OrderDTO orderDTO, String reason) {
+        String errorMessage = String.format("Capture of held funds failed for order: %s. Error: %s",
+                orderDTO.getId(),
+                reason);
+        log.error(errorMessage);
+        orderDTO.setStatus(OrderStatus.UNEXPECTED_FAILURE);
+        return CompletableFuture.allOf(
+                orderStatusPublisher.publish(orderDTO.getId(), OrderStatus.UNEXPECTED_FAILURE, errorMessage),
+                kafkaTemplate.send(captureFailed, orderDTO.getId().toString(), orderDTO));
     }
 
     @KafkaListener(topics = {"${kafka.topics.inventory-failed}", "${kafka.topics.delivery-result}"})
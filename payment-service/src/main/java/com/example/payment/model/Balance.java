@@ -1,13 +1,13 @@
 package com.example.payment.model;
 
+import com.example.common.money.Money;
+import com.example.common.money.MoneyConverter;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "balances")
 @Data
@@ -24,5 +24,9 @@ public class Balance {
     private Long userId;
     
     @Column(nullable = false)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
+
+    // Ledger model only: the last balance_entries row already folded into amount
+    private Long snapshotEntryId;
 }
@@ -0,0 +1,44 @@
+package com.example.payment.model;
+
+import com.example.common.money.Money;
+import com.example.common.money.MoneyConverter;
+import com.example.payment.enums.HoldStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Funds of a payment that are already taken from the balance but not yet captured. Capturing
+ * only changes the status; releasing returns the amount to the balance.
+ */
+@Entity
+@Table(name = "balance_holds", indexes = {
+        @Index(name = "idx_balance_holds_order_id", columnList = "order_id"),
+        @Index(name = "idx_balance_holds_status_expires_at", columnList = "status, expires_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long paymentId;
+    private Long orderId;
+    private Long userId;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    private HoldStatus status;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private LocalDateTime settledAt;
+}
@@ -1,5 +1,7 @@
 package com.example.payment.model;
 
+import com.example.common.money.Money;
+import com.example.common.money.MoneyConverter;
 import com.example.payment.enums.PaymentStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -7,11 +9,13 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+// The unique partial index on order_id for COMPLETED rows is created by PaymentWriter
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_order_id_timestamp", columnList = "order_id, timestamp")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -23,7 +27,8 @@ public class Payment {
     
     private Long orderId;
     private Long userId;
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
     
     @Enumerated(EnumType.STRING)
     private PaymentStatus status;
@@ -0,0 +1,28 @@
+package com.example.payment.repository;
+
+import com.example.payment.enums.HoldStatus;
+import com.example.payment.model.BalanceHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceHoldRepository extends JpaRepository<BalanceHold, Long> {
+
+    /**
+     * Loads and row-locks the order's latest hold, so a capture and a release of the same hold
+     * run one after the other and only the first one applies.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<BalanceHold> findFirstByOrderIdOrderByIdDesc(Long orderId);
+
+    @Query("SELECT h FROM BalanceHold h WHERE h.status = :status AND h.expiresAt < :now ORDER BY h.expiresAt")
+    List<BalanceHold> findExpiredBefore(LocalDateTime now, HoldStatus status, Limit limit);
+}
@@ -2,11 +2,23 @@ package com.example.payment.repository;
 
 import com.example.payment.model.Balance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * The {@code balances} account rows. Amounts are read and changed through {@link BalanceStore},
+ * since what the amount column holds depends on the balance model.
+ */
 @Repository
 public interface BalanceRepository extends JpaRepository<Balance, Long> {
     Optional<Balance> findByUserId(Long userId);
+
+    boolean existsByUserId(Long userId);
+
+    @Query("SELECT b.userId FROM Balance b WHERE b.userId IN :userIds")
+    Set<Long> findUserIdsIn(Collection<Long> userIds);
 }
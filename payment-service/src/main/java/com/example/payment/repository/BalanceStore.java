@@ -0,0 +1,72 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * How balance amounts are kept and changed; {@code payments.balance.model} selects the
+ * implementation. Every user with a balance has a row in {@code balances} whatever the model.
+ * All methods join the caller's transaction.
+ */
+public interface BalanceStore {
+
+    void create(Long userId, Money amount);
+
+    Optional<Money> find(Long userId);
+
+    /**
+     * @return balances by user id, in user id order
+     */
+    Map<Long, Money> findAll();
+
+    /**
+     * Sets the balance to the given amount, e.g. an admin correction.
+     *
+     * @return false if the user has no balance
+     */
+    boolean set(Long userId, Money amount);
+
+    /**
+     * @return false if the user has no balance
+     */
+    boolean delete(Long userId);
+
+    /**
+     * Debits the amount unless that would overdraw the balance.
+     *
+     * @return false if funds are short or the user has no balance
+     */
+    boolean debit(Long userId, Money amount);
+
+    /**
+     * Runs the debits in user id order, so concurrent batches lock balances in the same order
+     * and cannot deadlock. Debits of one user keep their relative order.
+     *
+     * @return per debit, in input order, whether the amount was debited
+     */
+    default boolean[] debitAll(List<PaymentRequest> debits) {
+        boolean[] debited = new boolean[debits.size()];
+        for (int i : byUserId(debits)) {
+            debited[i] = debit(debits.get(i).userId(), debits.get(i).amount());
+        }
+        return debited;
+    }
+
+    /**
+     * @return false if the user has no balance
+     */
+    boolean credit(Long userId, Money amount);
+
+    static int[] byUserId(List<PaymentRequest> debits) {
+        return IntStream.range(0, debits.size()).boxed()
+                .sorted(Comparator.comparing(i -> debits.get(i).userId()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The amount lives in the user's {@code balances} row and every change updates it in one
+ * statement. The row lock taken by the UPDATE serializes concurrent debits of a user, and the
+ * re-evaluated condition prevents an overdraft.
+ */
+@Repository
+@ConditionalOnProperty(name = "payments.balance.model", havingValue = "in-place", matchIfMissing = true)
+@RequiredArgsConstructor
+public class InPlaceBalanceStore implements BalanceStore {
+
+    private static final String INSERT = "INSERT INTO balances (user_id, amount) VALUES (?, ?)";
+
+    private static final String FIND = "SELECT amount FROM balances WHERE user_id = ?";
+
+    private static final String FIND_ALL = "SELECT user_id, amount FROM balances ORDER BY user_id";
+
+    private static final String SET = "UPDATE balances SET amount = ? WHERE user_id = ?";
+
+    private static final String DELETE = "DELETE FROM balances WHERE user_id = ?";
+
+    private static final String DEBIT_IF_SUFFICIENT =
+            "UPDATE balances SET amount = amount - ? WHERE user_id = ? AND amount >= ?";
+
+    private static final String CREDIT = "UPDATE balances SET amount = amount + ? WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void create(Long userId, Money amount) {
+        jdbcTemplate.update(INSERT, userId, amount.toBigDecimal());
+    }
+
+    @Override
+    public Optional<Money> find(Long userId) {
+        return jdbcTemplate.query(FIND, (rs, rowNum) -> Money.of(rs.getBigDecimal(1)), userId).stream().findFirst();
+    }
+
+    @Override
+    public Map<Long, Money> findAll() {
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_ALL, rs -> {
+            balances.put(rs.getLong("user_id"), Money.of(rs.getBigDecimal("amount")));
+        });
+        return balances;
+    }
+
+    @Override
+    public boolean set(Long userId, Money amount) {
+        return jdbcTemplate.update(SET, amount.toBigDecimal(), userId) == 1;
+    }
+
+    @Override
+    public boolean delete(Long userId) {
+        return jdbcTemplate.update(DELETE, userId) == 1;
+    }
+
+    @Override
+    public boolean debit(Long userId, Money amount) {
+        return jdbcTemplate.update(DEBIT_IF_SUFFICIENT, amount.toBigDecimal(), userId, amount.toBigDecimal()) == 1;
+    }
+
+    /**
+     * Sends all debits as one JDBC batch.
+     */
+    @Override
+    public boolean[] debitAll(List<PaymentRequest> debits) {
+        int[] order = BalanceStore.byUserId(debits);
+        int[] counts = jdbcTemplate.batchUpdate(DEBIT_IF_SUFFICIENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PaymentRequest debit = debits.get(order[i]);
+                ps.setBigDecimal(1, debit.amount().toBigDecimal());
+                ps.setLong(2, debit.userId());
+                ps.setBigDecimal(3, debit.amount().toBigDecimal());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return order.length;
+            }
+        });
+        boolean[] debited = new boolean[debits.size()];
+        for (int i = 0; i < order.length; i++) {
+            debited[order[i]] = counts[i] == 1;
+        }
+        return debited;
+    }
+
+    @Override
+    public boolean credit(Long userId, Money amount) {
+        return jdbcTemplate.update(CREDIT, amount.toBigDecimal(), userId) == 1;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Append-only ledger: every change of a balance is one row in {@code balance_entries}, and the
+ * {@code balances} row holds a snapshot, the sum of all entries up to
+ * {@code snapshot_entry_id}. A balance is the snapshot plus the tail of newer entries;
+ * {@link #compact} folds long tails into the snapshots.
+ * <p>
+ * Debits lock the user's {@code balances} row before checking funds, so they still serialize
+ * per user. Credits take a shared lock and do not wait for each other. Compaction takes the row
+ * lock too, so it never folds past an entry that has not committed yet.
+ */
+@Repository
+@ConditionalOnProperty(name = "payments.balance.model", havingValue = "ledger")
+@RequiredArgsConstructor
+public class LedgerBalanceStore implements BalanceStore {
+
+    private static final List<String> CREATE_TABLES = List.of(
+            """
+            CREATE TABLE IF NOT EXISTS balance_entries (
+                id bigserial PRIMARY KEY,
+                user_id bigint NOT NULL,
+                amount numeric(38, 2) NOT NULL,
+                type varchar(16) NOT NULL,
+                created_at timestamp(6) NOT NULL DEFAULT now()
+            )""",
+            "CREATE INDEX IF NOT EXISTS idx_balance_entries_user_id_id ON balance_entries (user_id, id)");
+
+    private static final String TAIL = """
+            COALESCE((SELECT sum(e.amount) FROM balance_entries e
+                      WHERE e.user_id = b.user_id AND e.id > COALESCE(b.snapshot_entry_id, 0)), 0)""";
+
+    private static final String INSERT_ACCOUNT =
+            "INSERT INTO balances (user_id, amount, snapshot_entry_id) VALUES (?, 0, 0)";
+
+    private static final String INSERT_ENTRY = "INSERT INTO balance_entries (user_id, amount, type) VALUES (?, ?, ?)";
+
+    private static final String FIND = "SELECT b.amount + " + TAIL + " FROM balances b WHERE b.user_id = ?";
+
+    private static final String FIND_ALL =
+            "SELECT b.user_id, b.amount + " + TAIL + " AS amount FROM balances b ORDER BY b.user_id";
+
+    private static final String LOCK = "SELECT user_id FROM balances WHERE user_id = ? FOR UPDATE";
+
+    private static final String LOCK_SHARED = "SELECT user_id FROM balances WHERE user_id = ? FOR SHARE";
+
+    // Runs after LOCK, so its snapshot includes every entry committed before the lock was granted
+    private static final String DEBIT_IF_SUFFICIENT =
+            "INSERT INTO balance_entries (user_id, amount, type) SELECT b.user_id, ?, 'DEBIT' FROM balances b "
+                    + "WHERE b.user_id = ? AND b.amount + " + TAIL + " >= ?";
+
+    private static final String ADJUST =
+            "INSERT INTO balance_entries (user_id, amount, type) SELECT b.user_id, ? - (b.amount + " + TAIL + "), "
+                    + "'ADJUSTMENT' FROM balances b WHERE b.user_id = ?";
+
+    private static final String DELETE_ACCOUNT = "DELETE FROM balances WHERE user_id = ?";
+
+    private static final String DELETE_ENTRIES = "DELETE FROM balance_entries WHERE user_id = ?";
+
+    private static final String FIND_LONG_TAILS = """
+            SELECT b.user_id FROM balances b
+            JOIN balance_entries e ON e.user_id = b.user_id AND e.id > COALESCE(b.snapshot_entry_id, 0)
+            GROUP BY b.user_id HAVING count(*) >= ?
+            ORDER BY b.user_id LIMIT ?""";
+
+    private static final String LOCK_ALL =
+            "SELECT user_id FROM balances WHERE user_id = ANY (?) ORDER BY user_id FOR UPDATE";
+
+    private static final String FOLD_TAILS = """
+            UPDATE balances b SET amount = b.amount + t.total, snapshot_entry_id = t.last_id
+            FROM (SELECT e.user_id, sum(e.amount) AS total, max(e.id) AS last_id
+                  FROM balance_entries e JOIN balances s ON s.user_id = e.user_id
+                  WHERE e.user_id = ANY (?) AND e.id > COALESCE(s.snapshot_entry_id, 0)
+                  GROUP BY e.user_id) t
+            WHERE b.user_id = t.user_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void createTables() {
+        CREATE_TABLES.forEach(jdbcTemplate::execute);
+    }
+
+    @Override
+    public void create(Long userId, Money amount) {
+        jdbcTemplate.update(INSERT_ACCOUNT, userId);
+        jdbcTemplate.update(INSERT_ENTRY, userId, amount.toBigDecimal(), "OPENING");
+    }
+
+    @Override
+    public Optional<Money> find(Long userId) {
+        return jdbcTemplate.query(FIND, (rs, rowNum) -> Money.of(rs.getBigDecimal(1)), userId).stream().findFirst();
+    }
+
+    @Override
+    public Map<Long, Money> findAll() {
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_ALL, rs -> {
+            balances.put(rs.getLong("user_id"), Money.of(rs.getBigDecimal("amount")));
+        });
+        return balances;
+    }
+
+    @Override
+    public boolean set(Long userId, Money amount) {
+        return lock(LOCK, userId) && jdbcTemplate.update(ADJUST, amount.toBigDecimal(), userId) == 1;
+    }
+
+    @Override
+    public boolean delete(Long userId) {
+        if (jdbcTemplate.update(DELETE_ACCOUNT, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_ENTRIES, userId);
+        return true;
+    }
+
+    @Override
+    public boolean debit(Long userId, Money amount) {
+        BigDecimal value = amount.toBigDecimal();
+        return lock(LOCK, userId) && jdbcTemplate.update(DEBIT_IF_SUFFICIENT, value.negate(), userId, value) == 1;
+    }
+
+    @Override
+    public boolean credit(Long userId, Money amount) {
+        return lock(LOCK_SHARED, userId) && jdbcTemplate.update(INSERT_ENTRY, userId, amount.toBigDecimal(), "CREDIT") == 1;
+    }
+
+    /**
+     * Folds the tails of up to {@code maxUsers} users with at least {@code minTail} unfolded entries
+     * into their snapshots. Entries are kept as the audit trail.
+     *
+     * @return the number of users compacted
+     */
+    public int compact(int minTail, int maxUsers) {
+        List<Long> userIds = jdbcTemplate.queryForList(FIND_LONG_TAILS, Long.class, minTail, maxUsers);
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.query(LOCK_ALL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                (rs, rowNum) -> rs.getLong(1));
+        return jdbcTemplate.update(FOLD_TAILS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())));
+    }
+
+    private boolean lock(String sql, Long userId) {
+        return !jdbcTemplate.queryForList(sql, Long.class, userId).isEmpty();
+    }
+}
@@ -11,7 +11,4 @@ import java.util.Optional;
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.orderId = :orderId ORDER BY p.timestamp DESC LIMIT 1")
     Optional<Payment> findByOrderId(Long orderId);
-
-    @Query("SELECT p FROM Payment p WHERE p.orderId = :orderId AND p.status = 'COMPLETED' ORDER BY p.timestamp DESC")
-    Optional<Payment> findSuccessfulPaymentByOrderId(Long orderId);
 }
@@ -0,0 +1,127 @@
+package com.example.payment.repository;
+
+import com.example.payment.model.Payment;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Records completed payments with {@code INSERT ... ON CONFLICT} against a unique partial index,
+ * so an order can be paid at most once no matter how often its event is redelivered. Hibernate
+ * creates the table but cannot express a partial index, so the index is created here once the
+ * schema update has run. Writes join the caller's transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory")
+public class PaymentWriter {
+
+    private static final String CREATE_COMPLETED_INDEX = """
+            CREATE UNIQUE INDEX IF NOT EXISTS uk_payments_order_id_completed
+            ON payments (order_id) WHERE status = 'COMPLETED'""";
+
+    private static final String INSERT_COMPLETED = """
+            INSERT INTO payments (order_id, user_id, amount, status, transaction_id, timestamp)
+            VALUES (?, ?, ?, 'COMPLETED', ?, ?)
+            ON CONFLICT (order_id) WHERE status = 'COMPLETED' DO NOTHING
+            RETURNING id""";
+
+    private static final String INSERT_COMPLETED_ALL = """
+            INSERT INTO payments (order_id, user_id, amount, status, transaction_id, timestamp)
+            SELECT p.order_id, p.user_id, p.amount, 'COMPLETED', p.transaction_id, p.timestamp
+            FROM unnest(?, ?, ?, ?, ?) AS p (order_id, user_id, amount, transaction_id, timestamp)
+            ON CONFLICT (order_id) WHERE status = 'COMPLETED' DO NOTHING
+            RETURNING order_id, id""";
+
+    private static final String INSERT_FAILED = """
+            INSERT INTO payments (order_id, user_id, amount, status, transaction_id, timestamp, failure_reason)
+            VALUES (?, ?, ?, 'FAILED', ?, ?, ?)""";
+
+    private static final String MARK_FAILED = "UPDATE payments SET status = 'FAILED', failure_reason = ? WHERE id = ?";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void createIndexes() {
+        jdbcTemplate.execute(CREATE_COMPLETED_INDEX);
+    }
+
+    /**
+     * Inserts the payment as COMPLETED unless the order already has a completed payment. A
+     * concurrent insert for the same order waits for the other transaction and only conflicts
+     * if that one commits.
+     *
+     * @return the id of the new row, or empty if the order is already paid
+     */
+    public Optional<Long> insertCompleted(Payment payment) {
+        List<Long> ids = jdbcTemplate.queryForList(INSERT_COMPLETED, Long.class,
+                payment.getOrderId(),
+                payment.getUserId(),
+                payment.getAmount().toBigDecimal(),
+                payment.getTransactionId(),
+                Timestamp.valueOf(payment.getTimestamp()));
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Batch variant of {@link #insertCompleted}: one statement for all payments. The orders must
+     * be distinct; orders that already have a completed payment are skipped.
+     *
+     * @return the new row id by order id, without the skipped orders
+     */
+    public Map<Long, Long> insertCompletedAll(List<Payment> payments) {
+        Map<Long, Long> ids = new HashMap<>();
+        if (payments.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_COMPLETED_ALL);
+            ps.setArray(1, connection.createArrayOf("bigint", payments.stream().map(Payment::getOrderId).toArray()));
+            ps.setArray(2, connection.createArrayOf("bigint", payments.stream().map(Payment::getUserId).toArray()));
+            ps.setArray(3, connection.createArrayOf("numeric", payments.stream().map(p -> p.getAmount().toBigDecimal()).toArray(BigDecimal[]::new)));
+            ps.setArray(4, connection.createArrayOf("varchar", payments.stream().map(Payment::getTransactionId).toArray()));
+            ps.setArray(5, connection.createArrayOf("timestamp", payments.stream().map(p -> Timestamp.valueOf(p.getTimestamp())).toArray()));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getLong("order_id"), rs.getLong("id"));
+        });
+        return ids;
+    }
+
+    /**
+     * Records payments that never reached the balance, e.g. declined by the processor.
+     */
+    public void insertFailed(List<Payment> payments) {
+        jdbcTemplate.batchUpdate(INSERT_FAILED, payments, BATCH_SIZE, (ps, payment) -> {
+            ps.setLong(1, payment.getOrderId());
+            ps.setLong(2, payment.getUserId());
+            ps.setBigDecimal(3, payment.getAmount().toBigDecimal());
+            ps.setString(4, payment.getTransactionId());
+            ps.setTimestamp(5, Timestamp.valueOf(payment.getTimestamp()));
+            ps.setString(6, payment.getFailureReason());
+        });
+    }
+
+    /**
+     * Turns completed rows inserted earlier in the same transaction into failed ones, with each
+     * payment's failure reason.
+     */
+    public void markFailed(List<Payment> payments) {
+        jdbcTemplate.batchUpdate(MARK_FAILED, payments, BATCH_SIZE, (ps, payment) -> {
+            ps.setString(1, payment.getFailureReason());
+            ps.setLong(2, payment.getId());
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Splits every balance across {@code stripes} rows of {@code balance_stripes}, so debits of one
+ * hot user lock different rows. A debit takes a random unlocked stripe that covers it; only
+ * when no single stripe does, it locks all of them in stripe order, debits the total and spreads
+ * the rest evenly again. A balance is the sum of its stripes, and {@code balances.amount} stays 0.
+ * <p>
+ * Balances without stripes, e.g. left by the in-place model, are split on startup.
+ */
+@Repository
+@ConditionalOnProperty(name = "payments.balance.model", havingValue = "striped")
+public class StripedBalanceStore implements BalanceStore {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS balance_stripes (
+                user_id bigint NOT NULL,
+                stripe int NOT NULL,
+                amount numeric(38, 2) NOT NULL,
+                PRIMARY KEY (user_id, stripe)
+            )""";
+
+    // One statement, so a balance is never counted twice or lost if startup is interrupted
+    private static final String SPLIT_UNSTRIPED = """
+            WITH unstriped AS (
+                SELECT b.user_id, b.amount FROM balances b
+                WHERE NOT EXISTS (SELECT 1 FROM balance_stripes s WHERE s.user_id = b.user_id)
+                FOR UPDATE
+            ), split AS (
+                INSERT INTO balance_stripes (user_id, stripe, amount)
+                SELECT u.user_id, g.stripe, CASE WHEN g.stripe = 0
+                    THEN u.amount - trunc(u.amount / ?, 2) * (? - 1)
+                    ELSE trunc(u.amount / ?, 2) END
+                FROM unstriped u CROSS JOIN generate_series(0, ? - 1) AS g(stripe)
+                ON CONFLICT (user_id, stripe) DO NOTHING
+            )
+            UPDATE balances b SET amount = 0 FROM unstriped u WHERE b.user_id = u.user_id""";
+
+    private static final String INSERT_ACCOUNT = "INSERT INTO balances (user_id, amount) VALUES (?, 0)";
+
+    private static final String INSERT_STRIPE = "INSERT INTO balance_stripes (user_id, stripe, amount) VALUES (?, ?, ?)";
+
+    private static final String SUM = "COALESCE((SELECT sum(s.amount) FROM balance_stripes s WHERE s.user_id = b.user_id), 0)";
+
+    private static final String FIND = "SELECT " + SUM + " FROM balances b WHERE b.user_id = ?";
+
+    private static final String FIND_ALL = "SELECT b.user_id, " + SUM + " AS amount FROM balances b ORDER BY b.user_id";
+
+    private static final String EXISTS = "SELECT user_id FROM balances WHERE user_id = ?";
+
+    private static final String LOCK_STRIPES =
+            "SELECT stripe, amount FROM balance_stripes WHERE user_id = ? ORDER BY stripe FOR UPDATE";
+
+    // Never waits: a stripe locked by another debit is skipped, not queued for
+    private static final String DEBIT_ANY_STRIPE = """
+            UPDATE balance_stripes s SET amount = s.amount - ?
+            FROM (SELECT user_id, stripe FROM balance_stripes WHERE user_id = ? AND amount >= ?
+                  ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED) pick
+            WHERE s.user_id = pick.user_id AND s.stripe = pick.stripe AND s.amount >= ?""";
+
+    private static final String SET_STRIPE = "UPDATE balance_stripes SET amount = ? WHERE user_id = ? AND stripe = ?";
+
+    // Also creates the stripe if the stripe count was raised after the balance was split
+    private static final String CREDIT = """
+            INSERT INTO balance_stripes (user_id, stripe, amount)
+            SELECT b.user_id, ?, ? FROM balances b WHERE b.user_id = ?
+            ON CONFLICT (user_id, stripe) DO UPDATE SET amount = balance_stripes.amount + EXCLUDED.amount""";
+
+    private static final String DELETE_STRIPES = "DELETE FROM balance_stripes WHERE user_id = ?";
+
+    private static final String DELETE_ACCOUNT = "DELETE FROM balances WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int stripes;
+
+    public StripedBalanceStore(JdbcTemplate jdbcTemplate,
+                               @Value("${payments.balance.striped.stripes:16}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("payments.balance.striped.stripes must be positive: " + stripes);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.stripes = stripes;
+    }
+
+    @PostConstruct
+    public void createTables() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        jdbcTemplate.update(SPLIT_UNSTRIPED, stripes, stripes, stripes, stripes);
+    }
+
+    @Override
+    public void create(Long userId, Money amount) {
+        jdbcTemplate.update(INSERT_ACCOUNT, userId);
+        List<Object[]> rows = new ArrayList<>(stripes);
+        Money[] shares = split(amount, stripes);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            rows.add(new Object[]{userId, stripe, shares[stripe].toBigDecimal()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_STRIPE, rows);
+    }
+
+    @Override
+    public Optional<Money> find(Long userId) {
+        return jdbcTemplate.query(FIND, (rs, rowNum) -> Money.of(rs.getBigDecimal(1)), userId).stream().findFirst();
+    }
+
+    @Override
+    public Map<Long, Money> findAll() {
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_ALL, rs -> {
+            balances.put(rs.getLong("user_id"), Money.of(rs.getBigDecimal("amount")));
+        });
+        return balances;
+    }
+
+    @Override
+    public boolean set(Long userId, Money amount) {
+        if (jdbcTemplate.queryForList(EXISTS, Long.class, userId).isEmpty()) {
+            return false;
+        }
+        List<Integer> locked = new ArrayList<>();
+        jdbcTemplate.query(LOCK_STRIPES, rs -> {
+            locked.add(rs.getInt("stripe"));
+        }, userId);
+        if (locked.isEmpty()) {
+            jdbcTemplate.update(INSERT_STRIPE, userId, 0, amount.toBigDecimal());
+        } else {
+            spread(userId, locked, amount);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(Long userId) {
+        jdbcTemplate.update(DELETE_STRIPES, userId);
+        return jdbcTemplate.update(DELETE_ACCOUNT, userId) == 1;
+    }
+
+    @Override
+    public boolean debit(Long userId, Money amount) {
+        if (jdbcTemplate.update(DEBIT_ANY_STRIPE, amount.toBigDecimal(), userId, amount.toBigDecimal(),
+                amount.toBigDecimal()) == 1) {
+            return true;
+        }
+        return debitAllStripes(userId, List.of(amount))[0];
+    }
+
+    /**
+     * A user's single debit takes the random-stripe path. Several debits of one user lock all of
+     * its stripes at once: taking one stripe and then waiting for the rest could deadlock with
+     * another batch doing the same.
+     */
+    @Override
+    public boolean[] debitAll(List<PaymentRequest> debits) {
+        int[] order = BalanceStore.byUserId(debits);
+        boolean[] debited = new boolean[debits.size()];
+        int from = 0;
+        while (from < order.length) {
+            Long userId = debits.get(order[from]).userId();
+            int to = from + 1;
+            while (to < order.length && debits.get(order[to]).userId().equals(userId)) {
+                to++;
+            }
+            if (to - from == 1) {
+                debited[order[from]] = debit(userId, debits.get(order[from]).amount());
+            } else {
+                int[] userDebits = Arrays.copyOfRange(order, from, to);
+                boolean[] result = debitAllStripes(userId, Arrays.stream(userDebits)
+                        .mapToObj(i -> debits.get(i).amount())
+                        .toList());
+                for (int i = 0; i < userDebits.length; i++) {
+                    debited[userDebits[i]] = result[i];
+                }
+            }
+            from = to;
+        }
+        return debited;
+    }
+
+    @Override
+    public boolean credit(Long userId, Money amount) {
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        return jdbcTemplate.update(CREDIT, stripe, amount.toBigDecimal(), userId) == 1;
+    }
+
+    /**
+     * Locks all stripes of the user in stripe order and debits the amounts in turn against their
+     * total, then spreads what is left evenly, so the next debits find funded stripes again.
+     */
+    private boolean[] debitAllStripes(Long userId, List<Money> amounts) {
+        List<Integer> locked = new ArrayList<>();
+        Money[] total = {Money.ZERO};
+        jdbcTemplate.query(LOCK_STRIPES, rs -> {
+            locked.add(rs.getInt("stripe"));
+            total[0] = total[0].plus(Money.of(rs.getBigDecimal("amount")));
+        }, userId);
+        boolean[] debited = new boolean[amounts.size()];
+        if (locked.isEmpty()) {
+            return debited;
+        }
+        Money remaining = total[0];
+        for (int i = 0; i < amounts.size(); i++) {
+            if (remaining.isGreaterThanOrEqualTo(amounts.get(i))) {
+                remaining = remaining.minus(amounts.get(i));
+                debited[i] = true;
+            }
+        }
+        if (!remaining.equals(total[0])) {
+            spread(userId, locked, remaining);
+        }
+        return debited;
+    }
+
+    private void spread(Long userId, List<Integer> lockedStripes, Money amount) {
+        Money[] shares = split(amount, lockedStripes.size());
+        List<Object[]> rows = new ArrayList<>(lockedStripes.size());
+        for (int i = 0; i < shares.length; i++) {
+            rows.add(new Object[]{shares[i].toBigDecimal(), userId, lockedStripes.get(i)});
+        }
+        jdbcTemplate.batchUpdate(SET_STRIPE, rows);
+    }
+
+    // Remainder minor units go to the first stripes
+    private static Money[] split(Money amount, int parts) {
+        long share = Math.floorDiv(amount.getMinorUnits(), parts);
+        long remainder = Math.floorMod(amount.getMinorUnits(), parts);
+        Money[] shares = new Money[parts];
+        for (int i = 0; i < parts; i++) {
+            shares[i] = Money.ofMinor(share + (i < remainder ? 1 : 0), amount.getCurrency());
+        }
+        return shares;
+    }
+}
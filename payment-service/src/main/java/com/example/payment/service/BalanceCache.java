@@ -0,0 +1,60 @@
+package com.example.payment.service;
+
+import com.example.common.money.Money;
+import com.example.common.transaction.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of balances for reads that tolerate staleness, such as
+ * {@code GET /api/balances/{userId}}. Debits never read it; a debit or refund puts the new amount,
+ * or drops the entry, once its transaction commits.
+ */
+@Component
+public class BalanceCache {
+
+    static final String CACHE_NAME = "balances";
+
+    private final Cache<Long, Money> balances;
+    private final TransactionTemplate readTransaction;
+
+    public BalanceCache(MeterRegistry meterRegistry,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${payments.balance-cache.max-size:10000}") long maxSize,
+                        @Value("${payments.balance-cache.ttl:1m}") Duration ttl) {
+        this.balances = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        CaffeineCacheMetrics.monitor(meterRegistry, balances, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached balance, loading it in a read-only transaction on a miss.
+     *
+     * @return the balance, or null if the loader finds none; a missing balance is not cached
+     */
+    public Money get(Long userId, Function<Long, Money> loader) {
+        return balances.get(userId, id -> readTransaction.execute(status -> loader.apply(id)));
+    }
+
+    public void putAfterCommit(Long userId, Money amount) {
+        AfterCommit.run(() -> balances.put(userId, amount));
+    }
+
+    public void invalidateAfterCommit(Long userId) {
+        AfterCommit.run(() -> balances.invalidate(userId));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.payment.service;
+
+import com.example.common.client.OrderStatusPublisher;
+import com.example.common.dto.OrderDTO;
+import com.example.common.enums.OrderStatus;
+import com.example.payment.enums.HoldStatus;
+import com.example.payment.model.BalanceHold;
+import com.example.payment.repository.BalanceHoldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Releases held funds whose order never reached INVENTORY_DONE within {@code payments.holds.ttl},
+ * e.g. because a saga event was lost. Each hold is released in its own short transaction, and
+ * its order is then failed with PAYMENT_FAILED. Stock reserved for the order in the meantime is
+ * put back when its capture fails on the released hold.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.holds.enabled", havingValue = "true")
+@Slf4j
+public class BalanceHoldSweeper {
+
+    private final BalanceHoldRepository balanceHoldRepository;
+    private final PaymentService paymentService;
+    private final OrderStatusPublisher orderStatusPublisher;
+    private final KafkaTemplate<String, OrderDTO> kafkaTemplate;
+    private final String paymentFailed;
+    private final int batchSize;
+
+    public BalanceHoldSweeper(BalanceHoldRepository balanceHoldRepository,
+                              PaymentService paymentService,
+                              OrderStatusPublisher orderStatusPublisher,
+                              KafkaTemplate<String, OrderDTO> kafkaTemplate,
+                              @Value("${kafka.topics.payment-failed}") String paymentFailed,
+                              @Value("${payments.holds.sweep-batch-size:100}") int batchSize) {
+        this.balanceHoldRepository = balanceHoldRepository;
+        this.paymentService = paymentService;
+        this.orderStatusPublisher = orderStatusPublisher;
+        this.kafkaTemplate = kafkaTemplate;
+        this.paymentFailed = paymentFailed;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.holds.sweep-interval-ms:60000}")
+    public void releaseExpired() {
+        int released = 0;
+        List<BalanceHold> holds;
+        int releasedInBatch;
+        do {
+            holds = balanceHoldRepository.findExpiredBefore(LocalDateTime.now(), HoldStatus.HELD, Limit.of(batchSize));
+            releasedInBatch = 0;
+            for (BalanceHold hold : holds) {
+                try {
+                    // False if the hold was captured, released or started capturing since it was selected
+                    if (paymentService.releaseExpiredHold(hold.getOrderId())) {
+                        releasedInBatch++;
+                        failOrder(hold);
+                    }
+                } catch (Exception e) {
+                    log.error("Could not release expired hold for order: {}", hold.getOrderId(), e);
+                }
+            }
+            released += releasedInBatch;
+            // A batch that releases nothing would be selected again; wait for the next run
+        } while (holds.size() == batchSize && releasedInBatch > 0);
+        if (released > 0) {
+            log.info("Released {} expired balance holds", released);
+        }
+    }
+
+    private void failOrder(BalanceHold hold) {
+        OrderDTO orderDTO = OrderDTO.builder()
+                .id(hold.getOrderId())
+                .userId(hold.getUserId())
+                .totalAmount(hold.getAmount())
+                .status(OrderStatus.PAYMENT_FAILED)
+                .build();
+        log.error("Funds hold expired before capture for order: {}", hold.getOrderId());
+        orderStatusPublisher.publish(
+                hold.getOrderId(),
+                OrderStatus.PAYMENT_FAILED,
+                "Payment failed - funds hold expired before capture"
+        );
+        kafkaTemplate.send(paymentFailed, hold.getOrderId().toString(), orderDTO);
+    }
+}
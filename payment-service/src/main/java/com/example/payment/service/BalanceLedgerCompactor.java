@@ -0,0 +1,49 @@
+package com.example.payment.service;
+
+import com.example.payment.repository.LedgerBalanceStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Materializes ledger snapshots, so reading a balance never sums more than about
+ * {@code min-tail} entries. Each chunk of users is locked and folded in its own short
+ * transaction, which delays their debits for one UPDATE.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.balance.model", havingValue = "ledger")
+@Slf4j
+public class BalanceLedgerCompactor {
+
+    private final LedgerBalanceStore ledgerBalanceStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int minTail;
+    private final int batchSize;
+
+    public BalanceLedgerCompactor(LedgerBalanceStore ledgerBalanceStore,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${payments.balance.ledger.min-tail:50}") int minTail,
+                                  @Value("${payments.balance.ledger.batch-size:100}") int batchSize) {
+        this.ledgerBalanceStore = ledgerBalanceStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minTail = minTail;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.balance.ledger.compaction-interval-ms:10000}")
+    public void compact() {
+        int compacted = 0;
+        Integer users;
+        do {
+            users = transactionTemplate.execute(status -> ledgerBalanceStore.compact(minTail, batchSize));
+            compacted += users;
+        } while (users == batchSize);
+        if (compacted > 0) {
+            log.debug("Folded ledger tails of {} users into snapshots", compacted);
+        }
+    }
+}
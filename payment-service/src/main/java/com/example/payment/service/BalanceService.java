@@ -1,16 +1,19 @@
 package com.example.payment.service;
 
+import com.example.common.money.Money;
 import com.example.payment.dto.BalanceDTO;
-import com.example.payment.model.Balance;
+import com.example.payment.dto.PaymentRequest;
 import com.example.payment.repository.BalanceRepository;
+import com.example.payment.repository.BalanceStore;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -18,74 +21,105 @@ import java.util.List;
 public class BalanceService {
 
     private final BalanceRepository balanceRepository;
+    private final BalanceStore balanceStore;
+    private final BalanceCache balanceCache;
 
-    @Transactional(readOnly = true)
+    /**
+     * Served from {@link BalanceCache}; may lag a debit by the time it takes to commit.
+     */
     public BalanceDTO getBalance(Long userId) {
-        Balance balance = balanceRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Balance not found for user: " + userId));
-        return mapToDTO(balance);
+        Money amount = balanceCache.get(userId, id -> balanceStore.find(id).orElse(null));
+        if (amount == null) {
+            throw new EntityNotFoundException("Balance not found for user: " + userId);
+        }
+        return mapToDTO(userId, amount);
     }
 
     @Transactional
     public BalanceDTO createBalance(BalanceDTO balanceDTO) {
-        Balance balance = Balance.builder()
-                .userId(balanceDTO.getUserId())
-                .amount(balanceDTO.getAmount())
-                .build();
-        Balance savedBalance = balanceRepository.save(balance);
-        return mapToDTO(savedBalance);
+        balanceStore.create(balanceDTO.getUserId(), balanceDTO.getAmount());
+        balanceCache.putAfterCommit(balanceDTO.getUserId(), balanceDTO.getAmount());
+        return mapToDTO(balanceDTO.getUserId(), balanceDTO.getAmount());
     }
 
     @Transactional
-    public BalanceDTO updateBalance(Long userId, BigDecimal amount) {
-        Balance balance = balanceRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Balance not found for user: " + userId));
-        balance.setAmount(amount);
-        Balance updatedBalance = balanceRepository.save(balance);
-        return mapToDTO(updatedBalance);
+    public BalanceDTO updateBalance(Long userId, Money amount) {
+        if (!balanceStore.set(userId, amount)) {
+            throw new EntityNotFoundException("Balance not found for user: " + userId);
+        }
+        balanceCache.putAfterCommit(userId, amount);
+        return mapToDTO(userId, amount);
     }
 
     @Transactional
     public void deleteBalance(Long userId) {
-        Balance balance = balanceRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Balance not found for user: " + userId));
-        balanceRepository.delete(balance);
+        if (!balanceStore.delete(userId)) {
+            throw new EntityNotFoundException("Balance not found for user: " + userId);
+        }
+        balanceCache.invalidateAfterCommit(userId);
     }
 
 
     @Transactional
-    public boolean processPayment(Long userId, BigDecimal amount) {
-        Balance balance = balanceRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Balance not found for user: " + userId));
-        
-        if (balance.getAmount().compareTo(amount) >= 0) {
-            balance.setAmount(balance.getAmount().subtract(amount));
-            balanceRepository.save(balance);
+    public boolean processPayment(Long userId, Money amount) {
+        if (balanceStore.debit(userId, amount)) {
+            // The debit does not return the new amount; the next read loads it
+            balanceCache.invalidateAfterCommit(userId);
             return true;
         }
+        // Only the failure path pays for telling a missing balance from insufficient funds
+        if (!balanceRepository.existsByUserId(userId)) {
+            throw new EntityNotFoundException("Balance not found for user: " + userId);
+        }
         return false;
     }
 
+    /**
+     * Debits several payments together, with one batched statement where the balance model
+     * allows it. Unlike {@link #processPayment}, a
+     * missing balance is reported as a failed debit; see {@link #findUsersWithBalance}.
+     *
+     * @return per payment, in input order, whether it was debited
+     */
     @Transactional
-    public void refundPayment(Long userId, BigDecimal amount) {
-        Balance balance = balanceRepository.findByUserId(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Balance not found for user: " + userId));
-        log.info("Refunding payment for user: {}, balance: {}, amount: {}", userId, balance.getAmount(), amount);
-        balance.setAmount(balance.getAmount().add(amount));
-        balanceRepository.save(balance);
+    public boolean[] processPayments(List<PaymentRequest> payments) {
+        if (payments.isEmpty()) {
+            return new boolean[0];
+        }
+        boolean[] debited = balanceStore.debitAll(payments);
+        for (int i = 0; i < debited.length; i++) {
+            if (debited[i]) {
+                balanceCache.invalidateAfterCommit(payments.get(i).userId());
+            }
+        }
+        return debited;
+    }
+
+    @Transactional(readOnly = true)
+    public Set<Long> findUsersWithBalance(Collection<Long> userIds) {
+        return balanceRepository.findUserIdsIn(userIds);
+    }
+
+    @Transactional
+    public void refundPayment(Long userId, Money amount) {
+        log.info("Refunding payment for user: {}, amount: {}", userId, amount);
+        if (!balanceStore.credit(userId, amount)) {
+            throw new EntityNotFoundException("Balance not found for user: " + userId);
+        }
+        balanceCache.invalidateAfterCommit(userId);
     }
 
     @Transactional(readOnly = true)
     public List<BalanceDTO> getAllBalances() {
-        return balanceRepository.findAll().stream()
-                .map(this::mapToDTO)
+        return balanceStore.findAll().entrySet().stream()
+                .map(entry -> mapToDTO(entry.getKey(), entry.getValue()))
                 .toList();
     }
 
-    private BalanceDTO mapToDTO(Balance balance) {
+    private BalanceDTO mapToDTO(Long userId, Money amount) {
         return BalanceDTO.builder()
-                .userId(balance.getUserId())
-                .amount(balance.getAmount())
+                .userId(userId)
+                .amount(amount)
                 .build();
     }
 }
@@ -1,94 +1,621 @@
 package com.example.payment.service;
 
-import com.example.payment.dto.BalanceDTO;
+import com.example.common.money.Money;
+import com.example.common.transaction.AfterCommit;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.enums.HoldStatus;
 import com.example.payment.enums.PaymentStatus;
-import com.example.payment.exceptions.InsufficientFundsException;
+import com.example.payment.exceptions.DuplicatePaymentException;
 import com.example.payment.exceptions.PaymentException;
+import com.example.payment.gateway.GatewayResponse;
+import com.example.payment.gateway.PaymentGateway;
+import com.example.payment.model.BalanceHold;
 import com.example.payment.model.Payment;
+import com.example.payment.repository.BalanceHoldRepository;
 import com.example.payment.repository.PaymentRepository;
+import com.example.payment.repository.PaymentWriter;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Payments are authorized at the {@link PaymentGateway}, debited locally, then captured. The
+ * processor calls are asynchronous and hold neither a thread nor a DB connection; the debit and
+ * the payment row are written in one short transaction on the settlement pool. A user's debits
+ * run one after another in arrival order, so a later order cannot take funds an earlier one needed.
+ * <p>
+ * With {@code payments.holds.enabled} the debit is recorded as a {@link BalanceHold} and the
+ * capture waits for the inventory reservation ({@link #captureHold}). A failed order then only
+ * releases the hold ({@link #releaseHold}) instead of refunding at the processor.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class PaymentService {
+public class PaymentService implements SmartLifecycle {
     private final PaymentRepository paymentRepository;
+    private final PaymentWriter paymentWriter;
+    private final BalanceHoldRepository balanceHoldRepository;
     private final BalanceService balanceService;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final long gatewayTimeoutMs;
+    private final Executor settlementExecutor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Duration holdTtl;
+    // Latest pending settlement per user; guarded by itself
+    private final Map<Long, CompletableFuture<Void>> userSettlements = new HashMap<>();
+    private volatile boolean running;
 
-    @Transactional
-    public boolean processPayment(Long orderId, Long userId, BigDecimal amount) {
+    @Autowired
+    public PaymentService(PaymentRepository paymentRepository,
+                          PaymentWriter paymentWriter,
+                          BalanceHoldRepository balanceHoldRepository,
+                          BalanceService balanceService,
+                          PaymentGateway paymentGateway,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${payments.gateway.timeout:30s}") Duration gatewayTimeout,
+                          @Value("${payments.processing.settlement-threads:8}") int settlementThreads,
+                          @Value("${payments.processing.max-in-flight:1000}") int maxInFlight,
+                          @Value("${payments.holds.enabled:false}") boolean holdsEnabled,
+                          @Value("${payments.holds.ttl:30m}") Duration holdTtl) {
+        this(paymentRepository, paymentWriter, balanceHoldRepository, balanceService, paymentGateway,
+                new TransactionTemplate(transactionManager), gatewayTimeout, Executors.newFixedThreadPool(settlementThreads),
+                maxInFlight, holdsEnabled ? holdTtl : null);
+    }
+
+    /**
+     * @param holdTtl how long held funds wait for capture, or null to capture right after the debit
+     */
+    PaymentService(PaymentRepository paymentRepository,
+                   PaymentWriter paymentWriter,
+                   BalanceHoldRepository balanceHoldRepository,
+                   BalanceService balanceService,
+                   PaymentGateway paymentGateway,
+                   TransactionTemplate transactionTemplate,
+                   Duration gatewayTimeout,
+                   Executor settlementExecutor,
+                   int maxInFlight,
+                   Duration holdTtl) {
+        this.paymentRepository = paymentRepository;
+        this.paymentWriter = paymentWriter;
+        this.balanceHoldRepository = balanceHoldRepository;
+        this.balanceService = balanceService;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = transactionTemplate;
+        this.gatewayTimeoutMs = gatewayTimeout.toMillis();
+        this.settlementExecutor = settlementExecutor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.holdTtl = holdTtl;
+    }
+
+    /**
+     * Blocking variant for the REST endpoint. No connection is held while it waits.
+     */
+    public boolean processPayment(Long orderId, Long userId, Money amount) {
+        try {
+            return processPaymentAsync(orderId, userId, amount).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a payment and returns right away; the future completes with the settlement result.
+     * Blocks the caller only while {@code payments.processing.max-in-flight} payments are pending,
+     * which throttles the Kafka consumer instead of queueing without bound.
+     */
+    public CompletableFuture<Boolean> processPaymentAsync(Long orderId, Long userId, Money amount) {
         log.info("Processing payment for order: {}, user: {}, amount: {}", orderId, userId, amount);
 
-        Optional<Payment> existingPayment = paymentRepository.findSuccessfulPaymentByOrderId(orderId);
-        if (existingPayment.isPresent()) {
-            log.warn("Payment already exists for order: {}", orderId);
-            throw new PaymentException("Payment already processed for this order");
+        Payment payment = newPayment(new PaymentRequest(orderId, userId, amount));
+
+        inFlight.acquireUninterruptibly();
+        CompletableFuture<GatewayResponse> authorization = authorize(payment);
+        List<Long> users = List.of(userId);
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        return takeTurn(users, settled)
+                .thenCompose(ignored -> authorization.handleAsync(
+                        (response, error) -> settle(payment, response, error), settlementExecutor))
+                .whenComplete((debited, error) -> endTurn(users, settled))
+                .thenCompose(debited -> debited ? captureUnlessHeld(payment) : CompletableFuture.completedFuture(false))
+                .whenComplete((success, error) -> inFlight.release());
+    }
+
+    /**
+     * Batch variant of {@link #processPaymentAsync}: the payments are authorized concurrently, then
+     * claimed, debited and recorded together in one transaction with batched statements. If that
+     * transaction fails, they are settled one by one so a single bad payment cannot fail the rest.
+     *
+     * @return one future per request, in request order, each completing like {@link #processPaymentAsync}
+     */
+    public List<CompletableFuture<Boolean>> processPaymentsAsync(List<PaymentRequest> requests) {
+        log.info("Processing batch of {} payments", requests.size());
+
+        if (requests.size() > maxInFlight) {
+            throw new IllegalArgumentException("Batch of " + requests.size()
+                    + " payments exceeds payments.processing.max-in-flight=" + maxInFlight);
+        }
+        List<Payment> payments = requests.stream().map(this::newPayment).toList();
+        // All permits at once: a batch holding some permits while waiting for more could stall forever
+        inFlight.acquireUninterruptibly(payments.size());
+        List<CompletableFuture<GatewayResponse>> authorizations = payments.stream().map(this::authorize).toList();
+        List<Long> users = payments.stream().map(Payment::getUserId).distinct().toList();
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        CompletableFuture<Settlement[]> settlements = takeTurn(users, settled)
+                .thenCompose(ignored -> CompletableFuture.allOf(authorizations.toArray(CompletableFuture[]::new))
+                        .handleAsync((unused, error) -> settleBatch(payments, authorizations), settlementExecutor))
+                .whenComplete((result, error) -> endTurn(users, settled));
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            int index = i;
+            results.add(settlements
+                    .thenCompose(settled -> complete(payment, settled[index]))
+                    .whenComplete((success, error) -> inFlight.release()));
+        }
+        return results;
+    }
+
+    private enum Settlement { DEBITED, FAILED, DUPLICATE }
+
+    /**
+     * Queues a settlement behind the pending settlements of the same users, so each user's
+     * payments are debited in the order they arrived; other users are not held up. The returned
+     * future completes when it is this settlement's turn, whatever the earlier ones' outcome.
+     */
+    private CompletableFuture<Void> takeTurn(List<Long> users, CompletableFuture<Void> settled) {
+        List<CompletableFuture<Void>> previous = new ArrayList<>(users.size());
+        synchronized (userSettlements) {
+            for (Long userId : users) {
+                CompletableFuture<Void> last = userSettlements.put(userId, settled);
+                if (last != null) {
+                    previous.add(last);
+                }
+            }
         }
+        return CompletableFuture.allOf(previous.toArray(CompletableFuture[]::new));
+    }
 
-        // Проверяем баланс
-        BalanceDTO balance = balanceService.getBalance(userId);
-        if (balance.getAmount().compareTo(amount) < 0) {
-            throw new InsufficientFundsException("Insufficient funds");
+    private void endTurn(List<Long> users, CompletableFuture<Void> settled) {
+        synchronized (userSettlements) {
+            users.forEach(userId -> userSettlements.remove(userId, settled));
         }
+        settled.complete(null);
+    }
+
+    private CompletableFuture<Boolean> complete(Payment payment, Settlement settlement) {
+        return switch (settlement) {
+            case DEBITED -> captureUnlessHeld(payment);
+            case FAILED -> CompletableFuture.completedFuture(false);
+            case DUPLICATE -> CompletableFuture.failedFuture(
+                    new DuplicatePaymentException("Payment already processed for this order"));
+        };
+    }
 
+    private Payment newPayment(PaymentRequest request) {
         // Создаем запись о платеже
-        Payment payment = Payment.builder()
-                .orderId(orderId)
-                .userId(userId)
-                .amount(amount)
+        return Payment.builder()
+                .orderId(request.orderId())
+                .userId(request.userId())
+                .amount(request.amount())
                 .status(PaymentStatus.PENDING)
                 .transactionId(generateTransactionId())
                 .timestamp(LocalDateTime.now())
                 .build();
+    }
 
+    private CompletableFuture<GatewayResponse> authorize(Payment payment) {
         try {
-            // Имитация времени на обработку платежа
-            imitatePaymentProcessing();
+            return paymentGateway.authorize(payment.getTransactionId(), payment.getUserId(), payment.getAmount())
+                    .orTimeout(gatewayTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // A gateway that throws instead of failing the future must not keep the in-flight permit
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-            // Проверяем баланс и списываем средства
-            boolean paymentSuccess = balanceService.processPayment(userId, amount);
-            
-            if (paymentSuccess) {
-                payment.setStatus(PaymentStatus.COMPLETED);
-                paymentRepository.save(payment);
-                log.debug("Payment processed successfully for order: {}", orderId);
+    private boolean settle(Payment payment, GatewayResponse authorization, Throwable error) {
+        Long orderId = payment.getOrderId();
+        if (error != null) {
+            fail(payment, gatewayFailure(error));
+            log.error("Payment authorization failed for order: {}", orderId, error);
+            return false;
+        }
+        if (!authorization.approved()) {
+            fail(payment, authorization.declineReason());
+            log.warn("Payment declined by processor for order: {} - {}", orderId, authorization.declineReason());
+            return false;
+        }
+        return settleAuthorized(payment);
+    }
+
+    private boolean settleAuthorized(Payment payment) {
+        Long orderId = payment.getOrderId();
+        try {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> debit(payment, status)))) {
                 return true;
-            } else {
-                payment.setStatus(PaymentStatus.FAILED);
-                payment.setFailureReason("Insufficient funds");
-                paymentRepository.save(payment);
-                log.error("Payment failed - insufficient funds for order: {}", orderId);
-                return false;
             }
+            fail(payment, "Insufficient funds");
+            log.error("Payment failed - insufficient funds for order: {}", orderId);
+            return false;
+        } catch (DuplicatePaymentException e) {
+            // A redelivered order that is already paid: nothing is debited or captured again
+            log.warn("Payment already exists for order: {}", orderId);
+            throw e;
         } catch (EntityNotFoundException e) {
-            payment.setStatus(PaymentStatus.FAILED);
-            payment.setFailureReason("User not found");
-            paymentRepository.save(payment);
-            log.error("Payment failed - user not found: {}", userId);
+            fail(payment, "User not found");
+            log.error("Payment failed - user not found: {}", payment.getUserId());
+            return false;
+        } catch (Exception e) {
+            fail(payment, e.getMessage());
+            log.error("Payment processing failed for order: {}", orderId, e);
             return false;
+        }
+    }
+
+    private Settlement[] settleBatch(List<Payment> payments, List<CompletableFuture<GatewayResponse>> authorizations) {
+        Settlement[] settlements = new Settlement[payments.size()];
+        List<Integer> approved = new ArrayList<>();
+        List<Payment> declined = new ArrayList<>();
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            CompletableFuture<GatewayResponse> authorization = authorizations.get(i);
+            GatewayResponse response = authorization.isCompletedExceptionally() ? null : authorization.join();
+            if (response != null && response.approved()) {
+                approved.add(i);
+                continue;
+            }
+            String reason = response == null ? gatewayFailure(authorization.exceptionNow()) : response.declineReason();
+            payment.setStatus(PaymentStatus.FAILED);
+            payment.setFailureReason(reason);
+            declined.add(payment);
+            settlements[i] = Settlement.FAILED;
+            log.warn("Payment not authorized for order: {} - {}", payment.getOrderId(), reason);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                paymentWriter.insertFailed(declined);
+                debitAll(payments, approved, settlements);
+            });
         } catch (Exception e) {
+            log.warn("Batch settlement of {} payments failed, settling them one by one", payments.size(), e);
+            declined.forEach(payment -> {
+                payment.setId(null);
+                saveQuietly(payment);
+            });
+            for (int i : approved) {
+                Payment payment = payments.get(i);
+                payment.setId(null);
+                payment.setStatus(PaymentStatus.PENDING);
+                payment.setFailureReason(null);
+                settlements[i] = settleOneQuietly(payment);
+            }
+        }
+        return settlements;
+    }
+
+    // Одна транзакция на весь пакет: вставка, списание и отметка неудачных платежей
+    private void debitAll(List<Payment> payments, List<Integer> approved, Settlement[] settlements) {
+        List<Integer> claimable = new ArrayList<>();
+        Set<Long> batchOrders = new HashSet<>();
+        for (int i : approved) {
+            // A redelivered order can appear twice in one poll; only its first payment is claimed
+            if (batchOrders.add(payments.get(i).getOrderId())) {
+                claimable.add(i);
+            } else {
+                settlements[i] = Settlement.DUPLICATE;
+            }
+        }
+        Map<Long, Long> ids = paymentWriter.insertCompletedAll(claimable.stream().map(payments::get).toList());
+
+        List<Payment> claimed = new ArrayList<>();
+        List<Integer> claimedIndexes = new ArrayList<>();
+        for (int i : claimable) {
+            Payment payment = payments.get(i);
+            Long id = ids.get(payment.getOrderId());
+            if (id == null) {
+                log.warn("Payment already exists for order: {}", payment.getOrderId());
+                settlements[i] = Settlement.DUPLICATE;
+                continue;
+            }
+            payment.setId(id);
+            claimed.add(payment);
+            claimedIndexes.add(i);
+        }
+
+        boolean[] debited = balanceService.processPayments(claimed.stream()
+                .map(p -> new PaymentRequest(p.getOrderId(), p.getUserId(), p.getAmount()))
+                .toList());
+        List<Payment> unpaid = new ArrayList<>();
+        List<BalanceHold> holds = new ArrayList<>();
+        for (int k = 0; k < claimed.size(); k++) {
+            Payment payment = claimed.get(k);
+            if (debited[k]) {
+                payment.setStatus(PaymentStatus.COMPLETED);
+                settlements[claimedIndexes.get(k)] = Settlement.DEBITED;
+                if (holdTtl != null) {
+                    holds.add(newHold(payment));
+                }
+            } else {
+                unpaid.add(payment);
+                settlements[claimedIndexes.get(k)] = Settlement.FAILED;
+            }
+        }
+        if (!holds.isEmpty()) {
+            balanceHoldRepository.saveAll(holds);
+        }
+        if (unpaid.isEmpty()) {
+            return;
+        }
+        Set<Long> withBalance = balanceService.findUsersWithBalance(
+                unpaid.stream().map(Payment::getUserId).distinct().toList());
+        for (Payment payment : unpaid) {
             payment.setStatus(PaymentStatus.FAILED);
-            payment.setFailureReason(e.getMessage());
+            payment.setFailureReason(withBalance.contains(payment.getUserId()) ? "Insufficient funds" : "User not found");
+            log.error("Payment failed for order: {} - {}", payment.getOrderId(), payment.getFailureReason());
+        }
+        paymentWriter.markFailed(unpaid);
+    }
+
+    private Settlement settleOneQuietly(Payment payment) {
+        try {
+            return settleAuthorized(payment) ? Settlement.DEBITED : Settlement.FAILED;
+        } catch (DuplicatePaymentException e) {
+            return Settlement.DUPLICATE;
+        } catch (Exception e) {
+            // fail() itself could not write; the order still gets a failed result
+            log.error("Payment settlement failed for order: {}", payment.getOrderId(), e);
+            return Settlement.FAILED;
+        }
+    }
+
+    private void saveQuietly(Payment payment) {
+        try {
             paymentRepository.save(payment);
-            log.error("Payment processing failed for order: {}", orderId, e);
+        } catch (Exception e) {
+            log.error("Could not record failed payment for order: {}", payment.getOrderId(), e);
+        }
+    }
+
+    // Записываем платеж и списываем средства в одной короткой транзакции
+    private boolean debit(Payment payment, TransactionStatus status) {
+        // The unique index rejects a second completed payment for the order in the insert itself
+        Long id = paymentWriter.insertCompleted(payment)
+                .orElseThrow(() -> new DuplicatePaymentException("Payment already processed for this order"));
+        if (!balanceService.processPayment(payment.getUserId(), payment.getAmount())) {
+            status.setRollbackOnly();
+            return false;
+        }
+        payment.setId(id);
+        payment.setStatus(PaymentStatus.COMPLETED);
+        if (holdTtl != null) {
+            balanceHoldRepository.save(newHold(payment));
+        }
+        return true;
+    }
+
+    private BalanceHold newHold(Payment payment) {
+        LocalDateTime now = LocalDateTime.now();
+        return BalanceHold.builder()
+                .paymentId(payment.getId())
+                .orderId(payment.getOrderId())
+                .userId(payment.getUserId())
+                .amount(payment.getAmount())
+                .status(HoldStatus.HELD)
+                .createdAt(now)
+                .expiresAt(now.plus(holdTtl))
+                .build();
+    }
+
+    private CompletableFuture<Boolean> captureUnlessHeld(Payment payment) {
+        // The processor keeps the authorization until captureHold or its own expiry
+        return holdTtl != null ? CompletableFuture.completedFuture(true) : capture(payment, false);
+    }
+
+    /**
+     * Captures the authorized amount. If the processor does not take the money, the local debit
+     * is reversed and the payment is marked failed in one transaction. For held funds the hold
+     * is settled in the same transaction, as CAPTURED or RELEASED.
+     */
+    private CompletableFuture<Boolean> capture(Payment payment, boolean held) {
+        CompletableFuture<GatewayResponse> response;
+        try {
+            response = paymentGateway.capture(payment.getTransactionId(), payment.getAmount());
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response
+                .orTimeout(gatewayTimeoutMs, TimeUnit.MILLISECONDS)
+                .handleAsync((capture, error) -> {
+                    if (error == null && capture.approved()) {
+                        if (held && !Boolean.TRUE.equals(transactionTemplate.execute(status -> settleCapturedHold(payment)))) {
+                            return false;
+                        }
+                        log.debug("Payment processed successfully for order: {}", payment.getOrderId());
+                        return true;
+                    }
+                    String reason = error != null ? gatewayFailure(error) : capture.declineReason();
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (held) {
+                            BalanceHold hold = balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(payment.getOrderId()).orElseThrow();
+                            if (hold.getStatus() != HoldStatus.HELD) {
+                                // Released meanwhile, so the funds are back on the balance already
+                                return;
+                            }
+                            settleHold(hold, HoldStatus.RELEASED);
+                        }
+                        balanceService.refundPayment(payment.getUserId(), payment.getAmount());
+                        payment.setStatus(PaymentStatus.FAILED);
+                        payment.setFailureReason("Capture failed: " + reason);
+                        paymentRepository.save(payment);
+                    });
+                    log.error("Payment capture failed for order: {}, debit reversed", payment.getOrderId(), error);
+                    return false;
+                }, settlementExecutor);
+    }
+
+    private boolean settleCapturedHold(Payment payment) {
+        BalanceHold hold = balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(payment.getOrderId()).orElseThrow();
+        if (hold.getStatus() == HoldStatus.RELEASED) {
+            // Released while the capture was in flight; the money already went back to the balance
+            log.error("Funds hold for order {} was released during capture, refunding at processor", payment.getOrderId());
+            refundAtProcessorAfterCommit(payment.getTransactionId(), payment.getAmount());
             return false;
         }
+        settleHold(hold, HoldStatus.CAPTURED);
+        return true;
+    }
+
+    private void fail(Payment payment, String reason) {
+        payment.setStatus(PaymentStatus.FAILED);
+        payment.setFailureReason(reason);
+        paymentRepository.save(payment);
+    }
+
+    private static String gatewayFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException
+                ? "Payment gateway timed out"
+                : "Payment gateway error: " + cause.getMessage();
+    }
+
+    /**
+     * Captures the funds held for the order, on INVENTORY_DONE. The hold stays HELD until the
+     * processor has taken the money, so a capture cut short by a crash is retried on redelivery
+     * or released by the sweeper. A redelivered event and an order paid without a hold succeed
+     * without doing anything.
+     *
+     * @return a future completing like {@link #processPaymentAsync}: false if the processor refused
+     * the capture, failed with a {@link PaymentException} if the hold was already released
+     */
+    public CompletableFuture<Boolean> captureHold(Long orderId) {
+        Payment payment;
+        try {
+            payment = transactionTemplate.execute(status -> {
+                BalanceHold hold = balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(orderId).orElse(null);
+                if (hold == null) {
+                    return null;
+                }
+                return switch (hold.getStatus()) {
+                    case HELD -> {
+                        // The sweeper must not release the hold while the processor takes the money
+                        LocalDateTime deadline = LocalDateTime.now().plus(Duration.ofMillis(2 * gatewayTimeoutMs));
+                        if (hold.getExpiresAt().isBefore(deadline)) {
+                            hold.setExpiresAt(deadline);
+                            balanceHoldRepository.save(hold);
+                        }
+                        yield payment(hold);
+                    }
+                    case CAPTURED -> {
+                        PaymentStatus captured = payment(hold).getStatus();
+                        if (captured != PaymentStatus.COMPLETED) {
+                            throw new PaymentException("Payment for order " + orderId + " is " + captured + ", not captured");
+                        }
+                        yield null;
+                    }
+                    case RELEASED -> throw new PaymentException("Funds hold for order " + orderId + " was released before capture");
+                };
+            });
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (payment == null) {
+            log.debug("No held funds to capture for order: {}", orderId);
+            return CompletableFuture.completedFuture(true);
+        }
+        return capture(payment, true);
+    }
+
+    /**
+     * Returns the funds held for the order to the balance; the processor authorization is left to
+     * lapse, as it was never captured.
+     *
+     * @return false if the order has no held funds, e.g. they were already captured
+     */
+    public boolean releaseHold(Long orderId) {
+        return release(orderId, false);
+    }
+
+    /**
+     * Like {@link #releaseHold}, for the sweeper: a hold whose capture started after it was
+     * selected has a new expiry and is left alone.
+     */
+    public boolean releaseExpiredHold(Long orderId) {
+        return release(orderId, true);
+    }
+
+    private boolean release(Long orderId, boolean onlyExpired) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            BalanceHold hold = balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(orderId).orElse(null);
+            if (hold == null || hold.getStatus() != HoldStatus.HELD) {
+                return false;
+            }
+            if (onlyExpired && hold.getExpiresAt().isAfter(LocalDateTime.now())) {
+                return false;
+            }
+            Payment payment = settleHold(hold, HoldStatus.RELEASED);
+            balanceService.refundPayment(hold.getUserId(), hold.getAmount());
+            payment.setStatus(PaymentStatus.REFUNDED);
+            payment.setRefundTimestamp(hold.getSettledAt());
+            paymentRepository.save(payment);
+            log.info("Released funds held for order: {}", orderId);
+            return true;
+        }));
+    }
+
+    private Payment settleHold(BalanceHold hold, HoldStatus status) {
+        hold.setStatus(status);
+        hold.setSettledAt(LocalDateTime.now());
+        balanceHoldRepository.save(hold);
+        return payment(hold);
+    }
+
+    private Payment payment(BalanceHold hold) {
+        return paymentRepository.findById(hold.getPaymentId())
+                .orElseThrow(() -> new IllegalStateException("Payment not found for hold: " + hold.getId()));
     }
 
     @Transactional
-    public void refundPayment(Long orderId, Long userId, BigDecimal amount) {
+    public void refundPayment(Long orderId, Long userId, Money amount) {
         log.info("Processing refund for order: {}, user: {}, amount: {}", orderId, userId, amount);
-        
+
+        // Funds that were never captured only need to go back to the balance
+        if (releaseHold(orderId)) {
+            return;
+        }
+
         Payment payment = paymentRepository.findByOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Payment not found for order: " + orderId));
         
@@ -103,6 +630,7 @@ public class PaymentService {
             payment.setStatus(PaymentStatus.REFUNDED);
             payment.setRefundTimestamp(LocalDateTime.now());
             paymentRepository.save(payment);
+            refundAtProcessorAfterCommit(payment.getTransactionId(), amount);
             
             log.debug("Refund processed successfully for order: {}", orderId);
         } catch (Exception e) {
@@ -111,6 +639,17 @@ public class PaymentService {
         }
     }
 
+    private void refundAtProcessorAfterCommit(String transactionId, Money amount) {
+        Runnable refund = () -> paymentGateway.refund(transactionId, amount)
+                .orTimeout(gatewayTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> {
+                    if (error != null || !response.approved()) {
+                        log.error("Processor refund failed for transaction: {}", transactionId, error);
+                    }
+                });
+        AfterCommit.run(refund);
+    }
+
     @Transactional(readOnly = true)
     public List<Payment> getAllPayments() {
         return paymentRepository.findAll();
@@ -125,12 +664,48 @@ public class PaymentService {
                 .orElseThrow(() -> new RuntimeException("Payment not found for order: " + orderId));
     }
 
+    @Override
+    public void start() {
+        running = true;
+    }
 
-    public void imitatePaymentProcessing() {
+    /**
+     * Runs after the listener containers have stopped, so no new payments arrive, and waits for the
+     * ones they handed over: a settlement rejected by a shut-down executor would report a failure
+     * for an order that is redelivered and paid after the restart. Every pending payment finishes
+     * within two gateway timeouts, one for the authorization and one for the capture.
+     */
+    @Override
+    public void stop() {
         try {
-            Thread.sleep(5000);
+            if (inFlight.tryAcquire(maxInFlight, 2 * gatewayTimeoutMs, TimeUnit.MILLISECONDS)) {
+                // Nothing is pending; give the permits back in case the context is started again
+                inFlight.release(maxInFlight);
+            } else {
+                log.warn("{} payments still pending at shutdown; their orders will be redelivered",
+                        maxInFlight - inFlight.availablePermits());
+            }
         } catch (InterruptedException e) {
-            log.error("Error imitating payment processing", e);
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Lower phases stop later: after the order listeners
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 100;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (settlementExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
         }
     }
 }
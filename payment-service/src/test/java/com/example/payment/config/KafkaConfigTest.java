@@ -0,0 +1,37 @@
+package com.example.payment.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaConfigTest {
+
+    @Test
+    void orderCreatedBatchConsumerFactory_ShouldRejectBatchLargerThanInFlightLimit() {
+        KafkaConfig kafkaConfig = kafkaConfig(true, 500, 100);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, kafkaConfig::orderCreatedBatchConsumerFactory);
+        assertTrue(e.getMessage().contains("payments.listener.batch.max-size=500"));
+    }
+
+    @Test
+    void orderCreatedBatchConsumerFactory_ShouldIgnoreBatchSizeWhenBatchModeIsOff() {
+        KafkaConfig kafkaConfig = kafkaConfig(false, 500, 100);
+
+        assertNotNull(kafkaConfig.orderCreatedBatchConsumerFactory());
+    }
+
+    private static KafkaConfig kafkaConfig(boolean batchEnabled, int batchMaxSize, int maxInFlight) {
+        KafkaConfig kafkaConfig = new KafkaConfig();
+        ReflectionTestUtils.setField(kafkaConfig, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaConfig, "batchEnabled", batchEnabled);
+        ReflectionTestUtils.setField(kafkaConfig, "batchMaxSize", batchMaxSize);
+        ReflectionTestUtils.setField(kafkaConfig, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(kafkaConfig, "batchMaxWait", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(kafkaConfig, "batchMinBytes", 65536);
+        return kafkaConfig;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.payment.controller;
 
+import com.example.common.money.Money;
 import com.example.payment.dto.BalanceDTO;
 import com.example.payment.service.BalanceService;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +12,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 import static org.mockito.Mockito.when;
@@ -38,7 +38,7 @@ class BalanceControllerTest {
     @Test
     void getBalance_ShouldReturnBalance() throws Exception {
         Long userId = 1L;
-        BalanceDTO balance = new BalanceDTO(userId, new BigDecimal("100.0"));
+        BalanceDTO balance = new BalanceDTO(userId, Money.parse("100.0"));
 
         when(balanceService.getBalance(userId)).thenReturn(balance);
 
@@ -49,7 +49,7 @@ class BalanceControllerTest {
 
     @Test
     void getAllBalances_ShouldReturnList() throws Exception {
-        List<BalanceDTO> balances = List.of(new BalanceDTO(1L, new BigDecimal("100.0")));
+        List<BalanceDTO> balances = List.of(new BalanceDTO(1L, Money.parse("100.0")));
         when(balanceService.getAllBalances()).thenReturn(balances);
 
         mockMvc.perform(get("/api/balances"))
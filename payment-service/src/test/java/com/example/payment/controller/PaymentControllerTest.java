@@ -1,5 +1,6 @@
 package com.example.payment.controller;
 
+import com.example.common.money.Money;
 import com.example.payment.model.Payment;
 import com.example.payment.service.PaymentService;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +12,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
-import java.math.BigDecimal;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -38,14 +38,14 @@ class PaymentControllerTest {
     void processPayment_ShouldReturnSuccess() throws Exception {
         Long orderId = 1L;
         Long userId = 2L;
-        BigDecimal amount = new BigDecimal("100.0");
+        Money amount = Money.parse("100.0");
 
         when(paymentService.processPayment(orderId, userId, amount)).thenReturn(true);
 
         mockMvc.perform(post("/api/payments/process")
                         .param("orderId", orderId.toString())
                         .param("userId", userId.toString())
-                        .param("amount", amount.toString()))
+                        .param("amount", amount.toPlainString()))
                 .andExpect(status().isOk())
                 .andExpect(content().string("true"));
     }
@@ -53,7 +53,7 @@ class PaymentControllerTest {
     @Test
     void getPaymentByOrderId_ShouldReturnPayment() throws Exception {
         Long orderId = 1L;
-        Payment payment = new Payment(1L, orderId, 2L, new BigDecimal("100.0"), null, null, null, null, null);
+        Payment payment = new Payment(1L, orderId, 2L, Money.parse("100.0"), null, null, null, null, null);
 
         when(paymentService.getPaymentByOrderId(orderId)).thenReturn(payment);
 
@@ -0,0 +1,86 @@
+package com.example.payment.gateway;
+
+import com.example.common.money.Money;
+import com.example.payment.exceptions.PaymentGatewayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SimulatedPaymentGatewayTest {
+
+    private static final Money AMOUNT = Money.parse("10.00");
+
+    private ScheduledExecutorService timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void approvesAfterTheConfiguredLatencyWithoutBlockingTheCaller() {
+        SimulatedPaymentGateway gateway = gateway(Duration.ofMillis(200), 0.0, 0.0);
+
+        long started = System.nanoTime();
+        CompletableFuture<GatewayResponse> response = gateway.authorize("tx-1", 1L, AMOUNT);
+
+        assertThat(response).isNotDone();
+        assertThat(response.join().approved()).isTrue();
+        assertThat(response.join().reference()).isEqualTo("auth-tx-1");
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void declinesAuthorizationsAtTheDeclineRate() {
+        SimulatedPaymentGateway gateway = gateway(Duration.ZERO, 1.0, 0.0);
+
+        GatewayResponse response = gateway.authorize("tx-2", 1L, AMOUNT).join();
+
+        assertThat(response.approved()).isFalse();
+        assertThat(response.declineReason()).isEqualTo("Declined by processor");
+        // Declines apply to authorizations only
+        assertThat(gateway.capture("tx-2", AMOUNT).join().approved()).isTrue();
+    }
+
+    @Test
+    void failsCallsAtTheErrorRate() {
+        SimulatedPaymentGateway gateway = gateway(Duration.ZERO, 0.0, 1.0);
+
+        assertThatThrownBy(() -> gateway.refund("tx-3", AMOUNT).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(PaymentGatewayException.class);
+    }
+
+    @Test
+    void latencyProfilesShapeTheSamples() {
+        SplittableRandom random = new SplittableRandom(42);
+
+        assertThat(LatencyProfile.FIXED.sampleMillis(random, 100, 50, 0.5, 10)).isEqualTo(100);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(LatencyProfile.NORMAL.sampleMillis(random, 10, 50, 0.0, 10)).isNotNegative();
+        }
+        // With every call in the tail, each sample is the body times the multiplier
+        assertThat(LatencyProfile.LONG_TAIL.sampleMillis(random, 100, 0, 1.0, 10)).isEqualTo(1000);
+        assertThat(LatencyProfile.LONG_TAIL.sampleMillis(random, 100, 0, 0.0, 10)).isEqualTo(100);
+    }
+
+    private SimulatedPaymentGateway gateway(Duration latency, double declineRate, double errorRate) {
+        return new SimulatedPaymentGateway(LatencyProfile.FIXED, latency, Duration.ZERO, 0.0, 1.0,
+                declineRate, errorRate, timer);
+    }
+}
@@ -1,17 +1,27 @@
 package com.example.payment.listener;
 
-import com.example.common.client.OrderServiceClient;
+import com.example.common.client.OrderStatusPublisher;
 import com.example.common.dto.OrderDTO;
 import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.exceptions.DuplicatePaymentException;
+import com.example.payment.exceptions.PaymentException;
 import com.example.payment.service.PaymentService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.mockito.Mockito.*;
 
@@ -25,34 +35,305 @@ class OrderProcessingListenerTest {
     private KafkaTemplate<String, OrderDTO> kafkaTemplate;
 
     @Mock
-    private OrderServiceClient orderServiceClient;
+    private OrderStatusPublisher orderStatusPublisher;
+
+    @Mock
+    private Acknowledgment acknowledgment;
 
     @InjectMocks
     private OrderProcessingListener orderProcessingListener;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderProcessingListener, "paymentCaptured", "payment-captured");
+        ReflectionTestUtils.setField(orderProcessingListener, "captureFailed", "capture-failed");
+        lenient().when(orderStatusPublisher.publish(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(kafkaTemplate.send(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
     @Test
     void handleNewOrder_ShouldProcessPaymentSuccessfully() {
         OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
 
-        when(paymentService.processPayment(1L, 2L, new BigDecimal("100.0"))).thenReturn(true);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
-        orderProcessingListener.handleNewOrder(orderDTO);
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
 
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(orderStatusPublisher, times(1))
+                .publish(1L, OrderStatus.PAID, "Payment successful for order");
         verify(kafkaTemplate, times(1)).send(isNull(), anyString(), eq(orderDTO));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldNotHandOverToInventoryWhenPaidIsNotPublished() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(orderStatusPublisher.publish(1L, OrderStatus.PAID, "Payment successful for order"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+
+        verify(kafkaTemplate, never()).send(any(), any(), any());
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldAcknowledgeOnlyAfterResultIsSent() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.completedFuture(false));
+        CompletableFuture<SendResult<String, OrderDTO>> sent = new CompletableFuture<>();
+        when(kafkaTemplate.send(isNull(), eq("1"), eq(orderDTO))).thenReturn(sent);
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+        verify(acknowledgment, never()).acknowledge();
+
+        sent.complete(null);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldLeaveOrderForRedeliveryWhenResultIsNotSent() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.completedFuture(false));
+        when(kafkaTemplate.send(isNull(), eq("1"), eq(orderDTO)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+
+        verify(acknowledgment, never()).acknowledge();
     }
 
     @Test
     void handleNewOrder_ShouldHandlePaymentFailure() {
         OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
 
-        when(paymentService.processPayment(1L, 2L, new BigDecimal("100.0"))).thenReturn(false);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.completedFuture(false));
 
-        orderProcessingListener.handleNewOrder(orderDTO);
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
 
-        verify(orderServiceClient, times(1))
-                .updateOrderStatus(1L, OrderStatus.PAYMENT_FAILED, "Payment failed for order");
+        verify(orderStatusPublisher, times(1))
+                .publish(1L, OrderStatus.PAYMENT_FAILED, "Payment failed for order");
         verify(kafkaTemplate, times(1)).send(isNull(), anyString(), eq(orderDTO));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldAcknowledgeOnlyAfterPaymentCompletes() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0"))).thenReturn(pending);
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+        verifyNoInteractions(acknowledgment, orderStatusPublisher, kafkaTemplate);
+
+        pending.complete(true);
+        verify(orderStatusPublisher).publish(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldReportUnexpectedFailureWhenPaymentFails() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Connection refused")));
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+
+        verify(orderStatusPublisher).publish(eq(1L), eq(OrderStatus.UNEXPECTED_FAILURE), contains("Connection refused"));
+        verify(kafkaTemplate).send(isNull(), anyString(), eq(orderDTO));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldRepublishPaidForRedeliveredPaidOrder() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.failedFuture(new DuplicatePaymentException("Payment already processed for this order")));
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+
+        verify(orderStatusPublisher).publish(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(orderStatusPublisher, never()).publish(anyLong(), eq(OrderStatus.UNEXPECTED_FAILURE), any());
+        verify(kafkaTemplate).send(isNull(), eq("1"), eq(orderDTO));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrders_ShouldPublishEachResultAndAcknowledgeBatchOnce() {
+        OrderDTO paid = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        OrderDTO unpaid = new OrderDTO(3L, 4L, 50.0, "456 Street", OrderStatus.REGISTERED);
+        OrderDTO skipped = new OrderDTO(5L, 6L, 10.0, "789 Street", OrderStatus.PAID);
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        when(paymentService.processPaymentsAsync(List.of(
+                new PaymentRequest(1L, 2L, Money.parse("100.0")),
+                new PaymentRequest(3L, 4L, Money.parse("50.0")))))
+                .thenReturn(List.of(CompletableFuture.completedFuture(true), pending));
+
+        orderProcessingListener.handleNewOrders(List.of(paid, skipped, unpaid), acknowledgment);
+
+        verify(orderStatusPublisher).publish(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(acknowledgment, never()).acknowledge();
+
+        pending.complete(false);
+        verify(orderStatusPublisher).publish(3L, OrderStatus.PAYMENT_FAILED, "Payment failed for order");
+        verify(orderStatusPublisher, never()).publish(eq(5L), any(), any());
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void handleNewOrders_ShouldDropRepeatedOrderInBatch() {
+        OrderDTO order = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        OrderDTO redelivered = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentsAsync(List.of(new PaymentRequest(1L, 2L, Money.parse("100.0")))))
+                .thenReturn(List.of(CompletableFuture.completedFuture(true)));
+
+        orderProcessingListener.handleNewOrders(List.of(order, redelivered), acknowledgment);
+
+        verify(orderStatusPublisher, times(1)).publish(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(orderStatusPublisher, never()).publish(anyLong(), eq(OrderStatus.UNEXPECTED_FAILURE), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrders_ShouldAcknowledgeBatchesInOrder() {
+        OrderDTO first = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        OrderDTO second = new OrderDTO(3L, 4L, 50.0, "456 Street", OrderStatus.REGISTERED);
+        CompletableFuture<Boolean> firstResult = new CompletableFuture<>();
+        when(paymentService.processPaymentsAsync(List.of(new PaymentRequest(1L, 2L, Money.parse("100.0")))))
+                .thenReturn(List.of(firstResult));
+        when(paymentService.processPaymentsAsync(List.of(new PaymentRequest(3L, 4L, Money.parse("50.0")))))
+                .thenReturn(List.of(CompletableFuture.completedFuture(true)));
+        Acknowledgment secondAck = mock(Acknowledgment.class);
+
+        orderProcessingListener.handleNewOrders(List.of(first), acknowledgment);
+        orderProcessingListener.handleNewOrders(List.of(second), secondAck);
+
+        // The second batch is done, but committing its offset would skip the unfinished first one
+        verify(secondAck, never()).acknowledge();
+
+        firstResult.complete(true);
+        verify(acknowledgment).acknowledge();
+        verify(secondAck).acknowledge();
+    }
+
+    @Test
+    void handleInventoryReserved_ShouldCaptureHeldFunds() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.INVENTORY_DONE);
+        when(paymentService.captureHold(1L)).thenReturn(CompletableFuture.completedFuture(true));
+
+        orderProcessingListener.handleInventoryReserved(orderDTO, acknowledgment);
+
+        verify(paymentService).captureHold(1L);
+        verify(kafkaTemplate).send("payment-captured", "1", orderDTO);
+        verifyNoInteractions(orderStatusPublisher);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleInventoryReserved_ShouldAcknowledgeOnlyAfterCaptureIsHandedOver() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.INVENTORY_DONE);
+        CompletableFuture<Boolean> capture = new CompletableFuture<>();
+        when(paymentService.captureHold(1L)).thenReturn(capture);
+        CompletableFuture<SendResult<String, OrderDTO>> sent = new CompletableFuture<>();
+        when(kafkaTemplate.send("payment-captured", "1", orderDTO)).thenReturn(sent);
+
+        orderProcessingListener.handleInventoryReserved(orderDTO, acknowledgment);
+        capture.complete(true);
+        verify(acknowledgment, never()).acknowledge();
+
+        sent.complete(null);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleInventoryReserved_ShouldLeaveRecordForRedeliveryWhenInterruptedByShutdown() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.INVENTORY_DONE);
+        when(paymentService.captureHold(1L)).thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("shut down")));
+
+        orderProcessingListener.handleInventoryReserved(orderDTO, acknowledgment);
+
+        verifyNoInteractions(orderStatusPublisher, kafkaTemplate);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void handleInventoryReserved_ShouldReportFailedCapture() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.INVENTORY_DONE);
+        when(paymentService.captureHold(1L))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentException("Funds hold for order 1 was released before capture")));
+
+        orderProcessingListener.handleInventoryReserved(orderDTO, acknowledgment);
+
+        verify(orderStatusPublisher).publish(eq(1L), eq(OrderStatus.UNEXPECTED_FAILURE),
+                contains("released before capture"));
+        verify(kafkaTemplate).send("capture-failed", "1", orderDTO);
+        verify(kafkaTemplate, never()).send(eq("payment-captured"), any(), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleInventoryReserved_ShouldNotHandOverToDeliveryWhenCaptureIsDeclined() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.INVENTORY_DONE);
+        when(paymentService.captureHold(1L)).thenReturn(CompletableFuture.completedFuture(false));
+
+        orderProcessingListener.handleInventoryReserved(orderDTO, acknowledgment);
+
+        verify(orderStatusPublisher).publish(eq(1L), eq(OrderStatus.UNEXPECTED_FAILURE), contains("rejected by payment processor"));
+        verify(kafkaTemplate).send("capture-failed", "1", orderDTO);
+        verify(kafkaTemplate, never()).send(eq("payment-captured"), any(), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void handleNewOrder_ShouldLeaveOrderForRedeliveryWhenInterruptedByShutdown() {
+        OrderDTO orderDTO = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentAsync(1L, 2L, Money.parse("100.0")))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("shut down")));
+
+        orderProcessingListener.handleNewOrder(orderDTO, acknowledgment);
+
+        verifyNoInteractions(orderStatusPublisher, kafkaTemplate);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void handleNewOrders_ShouldNotAcknowledgePastBatchInterruptedByShutdown() {
+        OrderDTO first = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        OrderDTO second = new OrderDTO(3L, 4L, 50.0, "456 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentsAsync(List.of(new PaymentRequest(1L, 2L, Money.parse("100.0")))))
+                .thenReturn(List.of(CompletableFuture.failedFuture(new RejectedExecutionException("shut down"))));
+        when(paymentService.processPaymentsAsync(List.of(new PaymentRequest(3L, 4L, Money.parse("50.0")))))
+                .thenReturn(List.of(CompletableFuture.completedFuture(true)));
+        Acknowledgment secondAck = mock(Acknowledgment.class);
+
+        orderProcessingListener.handleNewOrders(List.of(first), acknowledgment);
+        orderProcessingListener.handleNewOrders(List.of(second), secondAck);
+
+        verify(orderStatusPublisher, never()).publish(eq(1L), any(), any());
+        verify(acknowledgment, never()).acknowledge();
+        verify(secondAck, never()).acknowledge();
+    }
+
+    @Test
+    void handleNewOrders_ShouldNotAcknowledgeBatchWithUnsentResult() {
+        OrderDTO paid = new OrderDTO(1L, 2L, 100.0, "123 Street", OrderStatus.REGISTERED);
+        OrderDTO unpaid = new OrderDTO(3L, 4L, 50.0, "456 Street", OrderStatus.REGISTERED);
+        when(paymentService.processPaymentsAsync(List.of(
+                new PaymentRequest(1L, 2L, Money.parse("100.0")),
+                new PaymentRequest(3L, 4L, Money.parse("50.0")))))
+                .thenReturn(List.of(CompletableFuture.completedFuture(true), CompletableFuture.completedFuture(false)));
+        when(kafkaTemplate.send(isNull(), eq("3"), eq(unpaid)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        orderProcessingListener.handleNewOrders(List.of(paid, unpaid), acknowledgment);
+
+        verify(orderStatusPublisher).publish(1L, OrderStatus.PAID, "Payment successful for order");
+        verify(acknowledgment, never()).acknowledge();
     }
 }
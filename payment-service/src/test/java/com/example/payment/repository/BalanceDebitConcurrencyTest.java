@@ -0,0 +1,192 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.model.Balance;
+import com.example.payment.service.BalanceCache;
+import com.example.payment.service.BalanceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many parallel debits against one balance must never take it below zero.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BalanceService.class, InPlaceBalanceStore.class, BalanceCache.class, SimpleMeterRegistry.class})
+// Every debit has to commit on its own, as it would for separate Kafka records
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class BalanceDebitConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 400;
+    private static final long USER_ID = 1L;
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("payment_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+    }
+
+    @Autowired
+    private BalanceRepository balanceRepository;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @AfterEach
+    void cleanUp() {
+        balanceRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        // 100.00 covers exactly 100 debits of 1.00 out of 400 attempts
+        balanceRepository.save(Balance.builder().userId(USER_ID).amount(Money.parse("100.00")).build());
+        Money debit = Money.parse("1.00");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                Callable<Boolean> attempt = () -> {
+                    start.await();
+                    return balanceService.processPayment(USER_ID, debit);
+                };
+                results.add(executor.submit(attempt));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+
+            assertThat(succeeded).isEqualTo(100);
+            assertThat(balanceRepository.findByUserId(USER_ID).orElseThrow().getAmount()).isEqualTo(Money.ZERO);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void debitAndRefundInterleaveWithoutLostUpdates() throws Exception {
+        balanceRepository.save(Balance.builder().userId(USER_ID).amount(Money.parse("50.00")).build());
+        Money amount = Money.parse("2.50");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> debits = new ArrayList<>();
+        List<Future<?>> refunds = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS / 2; i++) {
+                debits.add(executor.submit(() -> {
+                    start.await();
+                    return balanceService.processPayment(USER_ID, amount);
+                }));
+                refunds.add(executor.submit(() -> {
+                    start.await();
+                    balanceService.refundPayment(USER_ID, amount);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long succeeded = 0;
+            for (Future<Boolean> debitResult : debits) {
+                if (debitResult.get()) {
+                    succeeded++;
+                }
+            }
+            for (Future<?> refund : refunds) {
+                refund.get();
+            }
+
+            Money expected = Money.parse("50.00")
+                    .plus(amount.times(ATTEMPTS / 2))
+                    .minus(amount.times(succeeded));
+            Money balance = balanceRepository.findByUserId(USER_ID).orElseThrow().getAmount();
+            assertThat(balance).isEqualTo(expected);
+            assertThat(balance.isNegative()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentBatchesNeverOverdrawOrDeadlock() throws Exception {
+        long otherUserId = 2L;
+        balanceRepository.save(Balance.builder().userId(USER_ID).amount(Money.parse("100.00")).build());
+        balanceRepository.save(Balance.builder().userId(otherUserId).amount(Money.parse("100.00")).build());
+        Money debit = Money.parse("1.00");
+        // Batches name the users in opposite orders; unsorted row locks would deadlock
+        List<PaymentRequest> forward = List.of(
+                new PaymentRequest(1L, USER_ID, debit), new PaymentRequest(2L, otherUserId, debit));
+        List<PaymentRequest> backward = List.of(
+                new PaymentRequest(3L, otherUserId, debit), new PaymentRequest(4L, USER_ID, debit));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<boolean[]>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS / 2; i++) {
+                List<PaymentRequest> batch = i % 2 == 0 ? forward : backward;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return balanceService.processPayments(batch);
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<boolean[]> result : results) {
+                for (boolean debited : result.get()) {
+                    if (debited) {
+                        succeeded++;
+                    }
+                }
+            }
+
+            assertThat(succeeded).isEqualTo(200);
+            assertThat(balanceRepository.findByUserId(USER_ID).orElseThrow().getAmount()).isEqualTo(Money.ZERO);
+            assertThat(balanceRepository.findByUserId(otherUserId).orElseThrow().getAmount()).isEqualTo(Money.ZERO);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.BalanceDTO;
+import com.example.payment.service.BalanceCache;
+import com.example.payment.service.BalanceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ledger balances: snapshot plus tail must always equal the sum of all entries, under concurrent
+ * debits, credits and compaction.
+ */
+@DataJpaTest(properties = "payments.balance.model=ledger")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BalanceService.class, LedgerBalanceStore.class, BalanceCache.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class LedgerBalanceStoreTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 400;
+    private static final long USER_ID = 1L;
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("payment_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS + 1);
+    }
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private LedgerBalanceStore ledgerBalanceStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM balance_entries");
+        jdbcTemplate.update("DELETE FROM balances");
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("100.00")));
+        Money debit = Money.parse("1.00");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return balanceService.processPayment(USER_ID, debit);
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+
+            assertThat(succeeded).isEqualTo(100);
+            assertThat(ledgerBalanceStore.find(USER_ID)).contains(Money.ZERO);
+            assertThat(entryCount()).isEqualTo(101);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void compactionRacingWithPaymentsLosesNoEntry() throws Exception {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("50.00")));
+        Money amount = Money.parse("2.50");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean paying = new AtomicBoolean(true);
+        List<Future<Boolean>> debits = new ArrayList<>();
+        List<Future<?>> refunds = new ArrayList<>();
+        try {
+            Future<?> compactor = executor.submit(() -> {
+                start.await();
+                while (paying.get()) {
+                    transactionTemplate.execute(status -> ledgerBalanceStore.compact(1, 10));
+                }
+                return null;
+            });
+            for (int i = 0; i < ATTEMPTS / 2; i++) {
+                debits.add(executor.submit(() -> {
+                    start.await();
+                    return balanceService.processPayment(USER_ID, amount);
+                }));
+                refunds.add(executor.submit(() -> {
+                    start.await();
+                    balanceService.refundPayment(USER_ID, amount);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            long succeeded = 0;
+            for (Future<Boolean> debitResult : debits) {
+                if (debitResult.get()) {
+                    succeeded++;
+                }
+            }
+            for (Future<?> refund : refunds) {
+                refund.get();
+            }
+            paying.set(false);
+            compactor.get();
+
+            Money expected = Money.parse("50.00")
+                    .plus(amount.times(ATTEMPTS / 2))
+                    .minus(amount.times(succeeded));
+            assertThat(ledgerBalanceStore.find(USER_ID)).contains(expected);
+            assertThat(sumOfEntries()).isEqualTo(expected);
+
+            transactionTemplate.execute(status -> ledgerBalanceStore.compact(1, 10));
+            assertThat(tailLength()).isZero();
+            assertThat(ledgerBalanceStore.find(USER_ID)).contains(expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void updateBalanceAppendsAnAdjustment() {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("100.00")));
+        balanceService.processPayment(USER_ID, Money.parse("30.00"));
+
+        balanceService.updateBalance(USER_ID, Money.parse("500.00"));
+
+        assertThat(ledgerBalanceStore.find(USER_ID)).contains(Money.parse("500.00"));
+        assertThat(jdbcTemplate.queryForList("SELECT type FROM balance_entries ORDER BY id", String.class))
+                .containsExactly("OPENING", "DEBIT", "ADJUSTMENT");
+    }
+
+    private int entryCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM balance_entries", Integer.class);
+    }
+
+    private Money sumOfEntries() {
+        return Money.of(jdbcTemplate.queryForObject("SELECT sum(amount) FROM balance_entries", BigDecimal.class));
+    }
+
+    private int tailLength() {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM balance_entries e JOIN balances b ON b.user_id = e.user_id
+                WHERE e.id > COALESCE(b.snapshot_entry_id, 0)""", Integer.class);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.enums.PaymentStatus;
+import com.example.payment.model.Payment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PaymentWriter.class)
+// Each insert commits on its own, as it does for separate Kafka deliveries
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class PaymentWriterTest {
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("payment_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @Autowired
+    private PaymentWriter paymentWriter;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        paymentRepository.deleteAll();
+    }
+
+    @Test
+    void secondCompletedPaymentForAnOrderIsRejected() {
+        Optional<Long> first = insert(payment(1L));
+        Optional<Long> second = insert(payment(1L));
+
+        assertThat(first).isPresent();
+        assertThat(second).isEmpty();
+        assertThat(paymentRepository.findAll())
+                .singleElement()
+                .satisfies(p -> {
+                    assertThat(p.getId()).isEqualTo(first.get());
+                    assertThat(p.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+                    assertThat(p.getAmount()).isEqualTo(Money.parse("100.00"));
+                });
+    }
+
+    @Test
+    void failedAttemptsDoNotBlockALaterPayment() {
+        Payment failed = payment(2L);
+        failed.setStatus(PaymentStatus.FAILED);
+        failed.setFailureReason("Insufficient funds");
+        paymentRepository.save(failed);
+        paymentRepository.save(Payment.builder()
+                .orderId(2L).userId(1L).amount(Money.parse("100.00"))
+                .status(PaymentStatus.FAILED).timestamp(LocalDateTime.now()).build());
+
+        assertThat(insert(payment(2L))).isPresent();
+    }
+
+    @Test
+    void rolledBackInsertDoesNotCountAsPaid() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(paymentWriter.insertCompleted(payment(3L))).isPresent();
+            status.setRollbackOnly();
+        });
+
+        assertThat(insert(payment(3L))).isPresent();
+    }
+
+    @Test
+    void concurrentRedeliveriesRecordOnePayment() throws Exception {
+        int deliveries = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(deliveries);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Long>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < deliveries; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return insert(payment(4L));
+                }));
+            }
+            start.countDown();
+
+            int inserted = 0;
+            for (Future<Optional<Long>> result : results) {
+                if (result.get().isPresent()) {
+                    inserted++;
+                }
+            }
+            assertThat(inserted).isEqualTo(1);
+            assertThat(paymentRepository.count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void batchInsertSkipsPaidOrdersAndRecordsFailures() {
+        insert(payment(5L));
+        Payment unpaid = payment(7L);
+        Payment declined = payment(8L);
+        declined.setFailureReason("Declined by processor");
+
+        Map<Long, Long> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            Map<Long, Long> inserted = paymentWriter.insertCompletedAll(List.of(payment(5L), payment(6L), unpaid));
+            unpaid.setId(inserted.get(7L));
+            unpaid.setFailureReason("Insufficient funds");
+            paymentWriter.markFailed(List.of(unpaid));
+            paymentWriter.insertFailed(List.of(declined));
+            return inserted;
+        });
+
+        assertThat(ids).containsOnlyKeys(6L, 7L);
+        assertThat(paymentRepository.findById(ids.get(6L))).get()
+                .extracting(Payment::getStatus).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(paymentRepository.findById(ids.get(7L))).get()
+                .satisfies(p -> {
+                    assertThat(p.getStatus()).isEqualTo(PaymentStatus.FAILED);
+                    assertThat(p.getFailureReason()).isEqualTo("Insufficient funds");
+                });
+        assertThat(paymentRepository.findByOrderId(8L)).get()
+                .satisfies(p -> {
+                    assertThat(p.getStatus()).isEqualTo(PaymentStatus.FAILED);
+                    assertThat(p.getFailureReason()).isEqualTo("Declined by processor");
+                });
+        // The failed row of order 7 no longer blocks paying it
+        assertThat(insert(payment(7L))).isPresent();
+    }
+
+    private Optional<Long> insert(Payment payment) {
+        return new TransactionTemplate(transactionManager).execute(status -> paymentWriter.insertCompleted(payment));
+    }
+
+    private static Payment payment(Long orderId) {
+        return Payment.builder()
+                .orderId(orderId)
+                .userId(1L)
+                .amount(Money.parse("100.00"))
+                .status(PaymentStatus.PENDING)
+                .transactionId(UUID.randomUUID().toString())
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
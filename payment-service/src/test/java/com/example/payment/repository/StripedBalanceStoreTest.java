@@ -0,0 +1,153 @@
+package com.example.payment.repository;
+
+import com.example.common.money.Money;
+import com.example.payment.dto.BalanceDTO;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.service.BalanceCache;
+import com.example.payment.service.BalanceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Striped balances: debits spread over the stripes of one user must never overdraw the total.
+ */
+@DataJpaTest(properties = {"payments.balance.model=striped", "payments.balance.striped.stripes=4"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BalanceService.class, StripedBalanceStore.class, BalanceCache.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class StripedBalanceStoreTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 400;
+    private static final long USER_ID = 1L;
+
+    @SuppressWarnings("resource")
+    @Container
+    public static final PostgreSQLContainer<?> postgreSQLContainer = new PostgreSQLContainer<>("postgres:15.3")
+            .withDatabaseName("payment_db")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+    }
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private StripedBalanceStore stripedBalanceStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM balance_stripes");
+        jdbcTemplate.update("DELETE FROM balances");
+    }
+
+    @Test
+    void concurrentDebitsOfOneUserNeverOverdraw() throws Exception {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("100.00")));
+        Money debit = Money.parse("1.00");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return balanceService.processPayment(USER_ID, debit);
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+
+            assertThat(succeeded).isEqualTo(100);
+            assertThat(stripedBalanceStore.find(USER_ID)).contains(Money.ZERO);
+            assertThat(stripes()).allMatch(amount -> amount.signum() == 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void debitLargerThanAnyStripeTakesTheTotalAndRebalances() {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("10.00")));
+
+        assertThat(balanceService.processPayment(USER_ID, Money.parse("6.00"))).isTrue();
+        assertThat(balanceService.processPayment(USER_ID, Money.parse("4.01"))).isFalse();
+
+        assertThat(stripedBalanceStore.find(USER_ID)).contains(Money.parse("4.00"));
+        assertThat(stripes()).containsExactly(
+                new BigDecimal("1.00"), new BigDecimal("1.00"), new BigDecimal("1.00"), new BigDecimal("1.00"));
+    }
+
+    @Test
+    void batchDebitsOfOneUserAreCheckedAgainstTheTotal() {
+        balanceService.createBalance(new BalanceDTO(USER_ID, Money.parse("10.00")));
+        Money amount = Money.parse("4.00");
+
+        boolean[] debited = balanceService.processPayments(List.of(
+                new PaymentRequest(1L, USER_ID, amount),
+                new PaymentRequest(2L, USER_ID, amount),
+                new PaymentRequest(3L, USER_ID, amount)));
+
+        assertThat(debited).containsExactly(true, true, false);
+        assertThat(stripedBalanceStore.find(USER_ID)).contains(Money.parse("2.00"));
+    }
+
+    @Test
+    void refundsAndBalancesWithoutStripesAreCounted() {
+        jdbcTemplate.update("INSERT INTO balances (user_id, amount) VALUES (?, ?)", USER_ID, new BigDecimal("10.01"));
+
+        stripedBalanceStore.createTables();
+        balanceService.refundPayment(USER_ID, Money.parse("0.99"));
+
+        assertThat(stripedBalanceStore.find(USER_ID)).contains(Money.parse("11.00"));
+        assertThat(jdbcTemplate.queryForObject("SELECT amount FROM balances WHERE user_id = ?", BigDecimal.class, USER_ID))
+                .isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(stripes()).hasSize(4);
+    }
+
+    private List<BigDecimal> stripes() {
+        return jdbcTemplate.queryForList("SELECT amount FROM balance_stripes WHERE user_id = ? ORDER BY stripe",
+                BigDecimal.class, USER_ID);
+    }
+}
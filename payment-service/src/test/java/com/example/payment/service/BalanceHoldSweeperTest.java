@@ -0,0 +1,100 @@
+package com.example.payment.service;
+
+import com.example.common.client.OrderStatusPublisher;
+import com.example.common.dto.OrderDTO;
+import com.example.common.enums.OrderStatus;
+import com.example.common.money.Money;
+import com.example.payment.enums.HoldStatus;
+import com.example.payment.model.BalanceHold;
+import com.example.payment.repository.BalanceHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceHoldSweeperTest {
+
+    @Mock
+    private BalanceHoldRepository balanceHoldRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private OrderStatusPublisher orderStatusPublisher;
+
+    @Mock
+    private KafkaTemplate<String, OrderDTO> kafkaTemplate;
+
+    private BalanceHoldSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new BalanceHoldSweeper(balanceHoldRepository, paymentService, orderStatusPublisher,
+                kafkaTemplate, "payment-failed", 2);
+    }
+
+    @Test
+    void testReleaseExpired_FailsOrderOfReleasedHold() {
+        when(balanceHoldRepository.findExpiredBefore(any(), eq(HoldStatus.HELD), eq(Limit.of(2))))
+                .thenReturn(List.of(hold(10L)));
+        when(paymentService.releaseExpiredHold(10L)).thenReturn(true);
+
+        sweeper.releaseExpired();
+
+        verify(orderStatusPublisher).publish(eq(10L), eq(OrderStatus.PAYMENT_FAILED), contains("hold expired"));
+        ArgumentCaptor<OrderDTO> captor = ArgumentCaptor.forClass(OrderDTO.class);
+        verify(kafkaTemplate).send(eq("payment-failed"), eq("10"), captor.capture());
+        assertEquals(7L, captor.getValue().getUserId());
+        assertEquals(Money.parse("25"), captor.getValue().getTotalAmount());
+        assertEquals(OrderStatus.PAYMENT_FAILED, captor.getValue().getStatus());
+    }
+
+    @Test
+    void testReleaseExpired_LeavesOrderOfCapturedHoldAlone() {
+        // Captured between the query and the release
+        when(balanceHoldRepository.findExpiredBefore(any(), eq(HoldStatus.HELD), eq(Limit.of(2))))
+                .thenReturn(List.of(hold(10L)));
+        when(paymentService.releaseExpiredHold(10L)).thenReturn(false);
+
+        sweeper.releaseExpired();
+
+        verifyNoInteractions(orderStatusPublisher, kafkaTemplate);
+    }
+
+    @Test
+    void testReleaseExpired_ContinuesWithNextBatchUntilExhausted() {
+        when(balanceHoldRepository.findExpiredBefore(any(), eq(HoldStatus.HELD), eq(Limit.of(2))))
+                .thenReturn(List.of(hold(10L), hold(11L)))
+                .thenReturn(List.of(hold(12L)));
+        when(paymentService.releaseExpiredHold(anyLong())).thenReturn(true);
+        doThrow(new IllegalStateException("Payment not found for hold: 11")).when(paymentService).releaseExpiredHold(11L);
+
+        sweeper.releaseExpired();
+
+        verify(balanceHoldRepository, times(2)).findExpiredBefore(any(), any(), any());
+        verify(orderStatusPublisher).publish(eq(10L), eq(OrderStatus.PAYMENT_FAILED), any());
+        verify(orderStatusPublisher, never()).publish(eq(11L), any(), any());
+        verify(orderStatusPublisher).publish(eq(12L), eq(OrderStatus.PAYMENT_FAILED), any());
+    }
+
+    private static BalanceHold hold(Long orderId) {
+        return BalanceHold.builder()
+                .orderId(orderId)
+                .userId(7L)
+                .amount(Money.parse("25"))
+                .status(HoldStatus.HELD)
+                .build();
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.payment.service;
 
+import com.example.common.money.Money;
 import com.example.payment.dto.BalanceDTO;
-import com.example.payment.model.Balance;
+import com.example.payment.dto.PaymentRequest;
 import com.example.payment.repository.BalanceRepository;
+import com.example.payment.repository.BalanceStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,10 +13,13 @@ import org.junit.jupiter.api.function.Executable;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +31,13 @@ class BalanceServiceTest {
     @Mock
     private BalanceRepository balanceRepository;
 
+    @Mock
+    private BalanceStore balanceStore;
+
+    @Spy
+    private BalanceCache balanceCache = new BalanceCache(new SimpleMeterRegistry(),
+            mock(PlatformTransactionManager.class), 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private BalanceService balanceService;
 
@@ -36,23 +49,18 @@ class BalanceServiceTest {
     @Test
     void testGetBalance_Found() {
         Long userId = 1L;
-        Balance balance = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(1000))
-                .build();
-
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(balance));
+        when(balanceStore.find(userId)).thenReturn(Optional.of(Money.parse("1000")));
 
         BalanceDTO result = balanceService.getBalance(userId);
         assertNotNull(result);
         assertEquals(userId, result.getUserId());
-        assertEquals(BigDecimal.valueOf(1000), result.getAmount());
-        verify(balanceRepository).findByUserId(userId);
+        assertEquals(Money.parse("1000"), result.getAmount());
+        verify(balanceStore).find(userId);
     }
 
     @Test
     void testGetBalance_NotFound() {
-        when(balanceRepository.findByUserId(2L)).thenReturn(Optional.empty());
+        when(balanceStore.find(2L)).thenReturn(Optional.empty());
         assertThrows(EntityNotFoundException.class, () -> balanceService.getBalance(2L));
     }
 
@@ -60,46 +68,33 @@ class BalanceServiceTest {
     void testCreateBalance() {
         BalanceDTO newBalanceDTO = BalanceDTO.builder()
                 .userId(10L)
-                .amount(BigDecimal.valueOf(500))
+                .amount(Money.parse("500"))
                 .build();
 
-        Balance savedBalance = Balance.builder()
-                .userId(newBalanceDTO.getUserId())
-                .amount(newBalanceDTO.getAmount())
-                .build();
-
-        when(balanceRepository.save(any(Balance.class))).thenReturn(savedBalance);
-
         BalanceDTO result = balanceService.createBalance(newBalanceDTO);
         assertNotNull(result);
         assertEquals(10L, result.getUserId());
-        assertEquals(BigDecimal.valueOf(500), result.getAmount());
-        verify(balanceRepository).save(any(Balance.class));
+        assertEquals(Money.parse("500"), result.getAmount());
+        verify(balanceStore).create(10L, Money.parse("500"));
     }
 
     @Test
     void testUpdateBalance_Found() {
         Long userId = 11L;
-        Balance existing = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(100))
-                .build();
-
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
-        when(balanceRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(balanceStore.set(userId, Money.parse("300"))).thenReturn(true);
 
-        BalanceDTO result = balanceService.updateBalance(userId, BigDecimal.valueOf(300));
+        BalanceDTO result = balanceService.updateBalance(userId, Money.parse("300"));
         assertNotNull(result);
         assertEquals(userId, result.getUserId());
-        assertEquals(BigDecimal.valueOf(300), result.getAmount());
-        verify(balanceRepository).save(existing);
+        assertEquals(Money.parse("300"), result.getAmount());
+        verify(balanceStore).set(userId, Money.parse("300"));
     }
 
     @Test
     void testUpdateBalance_NotFound() {
-        when(balanceRepository.findByUserId(999L)).thenReturn(Optional.empty());
+        when(balanceStore.set(eq(999L), any())).thenReturn(false);
 
-        Executable updateBalanceCall = () -> balanceService.updateBalance(999L, BigDecimal.valueOf(1234));
+        Executable updateBalanceCall = () -> balanceService.updateBalance(999L, Money.parse("1234"));
 
         assertThrows(EntityNotFoundException.class, updateBalanceCall);
     }
@@ -107,86 +102,117 @@ class BalanceServiceTest {
     @Test
     void testDeleteBalance_Found() {
         Long userId = 12L;
-        Balance existing = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(100))
-                .build();
+        when(balanceStore.delete(userId)).thenReturn(true);
 
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
         balanceService.deleteBalance(userId);
-        verify(balanceRepository).delete(existing);
+        verify(balanceStore).delete(userId);
     }
 
     @Test
     void testDeleteBalance_NotFound() {
-        when(balanceRepository.findByUserId(123L)).thenReturn(Optional.empty());
+        when(balanceStore.delete(123L)).thenReturn(false);
         assertThrows(EntityNotFoundException.class, () -> balanceService.deleteBalance(123L));
     }
 
     @Test
     void testProcessPayment_Success() {
         Long userId = 15L;
-        Balance existing = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(500))
-                .build();
-
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
-        when(balanceRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(balanceStore.debit(userId, Money.parse("200"))).thenReturn(true);
 
-        boolean result = balanceService.processPayment(userId, BigDecimal.valueOf(200));
+        boolean result = balanceService.processPayment(userId, Money.parse("200"));
         assertTrue(result);
-        assertEquals(BigDecimal.valueOf(300), existing.getAmount());
-        verify(balanceRepository).save(existing);
+        verify(balanceStore, never()).find(any());
+        verify(balanceRepository, never()).existsByUserId(any());
     }
 
     @Test
     void testProcessPayment_Failure() {
         Long userId = 16L;
-        Balance existing = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(100))
-                .build();
-
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
+        when(balanceStore.debit(userId, Money.parse("200"))).thenReturn(false);
+        when(balanceRepository.existsByUserId(userId)).thenReturn(true);
 
-        boolean result = balanceService.processPayment(userId, BigDecimal.valueOf(200));
+        boolean result = balanceService.processPayment(userId, Money.parse("200"));
         assertFalse(result);
-        assertEquals(BigDecimal.valueOf(100), existing.getAmount());
-        verify(balanceRepository, never()).save(any());
+    }
+
+    @Test
+    void testProcessPayment_BalanceNotFound() {
+        when(balanceStore.debit(eq(18L), any())).thenReturn(false);
+        when(balanceRepository.existsByUserId(18L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> balanceService.processPayment(18L, Money.parse("200")));
     }
 
     @Test
     void testRefundPayment() {
         Long userId = 17L;
-        Balance existing = Balance.builder()
-                .userId(userId)
-                .amount(BigDecimal.valueOf(100))
-                .build();
+        when(balanceStore.credit(userId, Money.parse("50"))).thenReturn(true);
 
-        when(balanceRepository.findByUserId(userId)).thenReturn(Optional.of(existing));
-        when(balanceRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        balanceService.refundPayment(userId, Money.parse("50"));
+        verify(balanceStore).credit(userId, Money.parse("50"));
+    }
 
-        balanceService.refundPayment(userId, BigDecimal.valueOf(50));
-        assertEquals(BigDecimal.valueOf(150), existing.getAmount());
-        verify(balanceRepository).save(existing);
+    @Test
+    void testRefundPayment_BalanceNotFound() {
+        when(balanceStore.credit(eq(19L), any())).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> balanceService.refundPayment(19L, Money.parse("50")));
     }
 
     @Test
     void testGetAllBalances() {
-        List<Balance> list = new ArrayList<>();
-        Balance b1 = Balance.builder().userId(1L).amount(BigDecimal.TEN).build();
-        Balance b2 = Balance.builder().userId(2L).amount(BigDecimal.ONE).build();
-        list.add(b1);
-        list.add(b2);
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        balances.put(1L, Money.parse("10"));
+        balances.put(2L, Money.parse("1"));
 
-        when(balanceRepository.findAll()).thenReturn(list);
+        when(balanceStore.findAll()).thenReturn(balances);
 
         List<BalanceDTO> result = balanceService.getAllBalances();
         assertEquals(2, result.size());
         assertEquals(1L, result.get(0).getUserId());
-        assertEquals(BigDecimal.TEN, result.get(0).getAmount());
+        assertEquals(Money.parse("10"), result.get(0).getAmount());
         assertEquals(2L, result.get(1).getUserId());
-        assertEquals(BigDecimal.ONE, result.get(1).getAmount());
+        assertEquals(Money.parse("1"), result.get(1).getAmount());
+    }
+
+    @Test
+    void testProcessPayments_DelegatesToBatchDebit() {
+        List<PaymentRequest> payments = List.of(
+                new PaymentRequest(10L, 1L, Money.parse("100")),
+                new PaymentRequest(11L, 2L, Money.parse("100")));
+        when(balanceStore.debitAll(payments)).thenReturn(new boolean[]{true, false});
+
+        assertArrayEquals(new boolean[]{true, false}, balanceService.processPayments(payments));
+        assertEquals(0, balanceService.processPayments(List.of()).length);
+        verify(balanceStore, times(1)).debitAll(any());
+    }
+
+    @Test
+    void testGetBalance_ServedFromCacheUntilDebited() {
+        when(balanceStore.find(1L))
+                .thenReturn(Optional.of(Money.parse("1000")))
+                .thenReturn(Optional.of(Money.parse("900")));
+        when(balanceStore.debit(1L, Money.parse("100"))).thenReturn(true);
+
+        assertEquals(Money.parse("1000"), balanceService.getBalance(1L).getAmount());
+        assertEquals(Money.parse("1000"), balanceService.getBalance(1L).getAmount());
+        verify(balanceStore, times(1)).find(1L);
+
+        balanceService.processPayment(1L, Money.parse("100"));
+
+        assertEquals(Money.parse("900"), balanceService.getBalance(1L).getAmount());
+        verify(balanceStore, times(2)).find(1L);
+    }
+
+    @Test
+    void testUpdateBalance_RefreshesCache() {
+        when(balanceStore.find(1L)).thenReturn(Optional.of(Money.parse("1000")));
+        when(balanceStore.set(1L, Money.parse("50"))).thenReturn(true);
+
+        balanceService.getBalance(1L);
+        balanceService.updateBalance(1L, Money.parse("50"));
+
+        assertEquals(Money.parse("50"), balanceService.getBalance(1L).getAmount());
+        verify(balanceStore, times(1)).find(1L);
     }
 }
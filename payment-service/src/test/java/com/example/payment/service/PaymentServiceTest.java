@@ -1,21 +1,41 @@
 package com.example.payment.service;
 
-import com.example.payment.dto.BalanceDTO;
+import com.example.common.money.Money;
+import com.example.payment.dto.PaymentRequest;
+import com.example.payment.enums.HoldStatus;
 import com.example.payment.enums.PaymentStatus;
+import com.example.payment.exceptions.DuplicatePaymentException;
+import com.example.payment.exceptions.PaymentException;
+import com.example.payment.exceptions.PaymentGatewayException;
+import com.example.payment.gateway.GatewayResponse;
+import com.example.payment.gateway.PaymentGateway;
+import com.example.payment.model.BalanceHold;
 import com.example.payment.model.Payment;
+import com.example.payment.repository.BalanceHoldRepository;
 import com.example.payment.repository.PaymentRepository;
+import com.example.payment.repository.PaymentWriter;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,58 +45,81 @@ class PaymentServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private PaymentWriter paymentWriter;
+
+    @Mock
+    private BalanceHoldRepository balanceHoldRepository;
+
     @Mock
     private BalanceService balanceService;
 
-    @InjectMocks
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private PaymentService paymentService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        paymentService = newPaymentService(null);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(paymentWriter.insertCompleted(any())).thenReturn(Optional.of(100L));
+        when(paymentGateway.authorize(anyString(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.approved("auth")));
+        when(paymentGateway.capture(anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.approved("capture")));
+        when(paymentGateway.refund(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.approved("refund")));
     }
 
     @Test
     void testProcessPayment_Success() {
-        // Настраиваем баланс
-        BalanceDTO balanceDTO = new BalanceDTO(1L, BigDecimal.valueOf(1000));
-        when(balanceService.getBalance(1L)).thenReturn(balanceDTO);
-
         // Настраиваем успешное списание средств
-        when(balanceService.processPayment(1L, BigDecimal.valueOf(500))).thenReturn(true);
-
-        // Настраиваем сохранение платежа
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
-            Payment p = invocation.getArgument(0);
-            p.setId(100L);
-            return p;
-        });
+        when(balanceService.processPayment(1L, Money.parse("500"))).thenReturn(true);
 
-        boolean result = paymentService.processPayment(10L, 1L, BigDecimal.valueOf(500));
+        boolean result = paymentService.processPayment(10L, 1L, Money.parse("500"));
         assertTrue(result);
 
-        // Проверяем, что Payment создан и сохранён со статусом COMPLETED
+        // Проверяем, что Payment записан через insert-on-conflict и получил статус COMPLETED
         ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
-        verify(paymentRepository, times(1)).save(captor.capture());
+        verify(paymentWriter, times(1)).insertCompleted(captor.capture());
+        verify(paymentRepository, never()).save(any());
         Payment savedPayment = captor.getValue();
+        assertEquals(100L, savedPayment.getId());
         assertEquals(10L, savedPayment.getOrderId());
         assertEquals(1L, savedPayment.getUserId());
-        assertEquals(BigDecimal.valueOf(500), savedPayment.getAmount());
+        assertEquals(Money.parse("500"), savedPayment.getAmount());
         assertEquals(PaymentStatus.COMPLETED, savedPayment.getStatus());
         assertNotNull(savedPayment.getTransactionId());
     }
 
     @Test
-    void testProcessPayment_OtherException() {
-        // Настраиваем баланс
-        BalanceDTO balanceDTO = new BalanceDTO(4L, BigDecimal.valueOf(1000));
-        when(balanceService.getBalance(4L)).thenReturn(balanceDTO);
+    void testProcessPayment_InsufficientFunds() {
+        when(balanceService.processPayment(2L, Money.parse("500"))).thenReturn(false);
+
+        boolean result = paymentService.processPayment(20L, 2L, Money.parse("500"));
+        assertFalse(result);
 
+        ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(1)).save(captor.capture());
+        assertEquals(PaymentStatus.FAILED, captor.getValue().getStatus());
+        assertEquals("Insufficient funds", captor.getValue().getFailureReason());
+        // The completed row inserted before the debit is rolled back, the failure gets a new row
+        assertNull(captor.getValue().getId());
+        verify(balanceService, never()).getBalance(anyLong());
+    }
+
+    @Test
+    void testProcessPayment_OtherException() {
         // Настраиваем исключение при списании средств
-        when(balanceService.processPayment(4L, BigDecimal.valueOf(200)))
+        when(balanceService.processPayment(4L, Money.parse("200")))
                 .thenThrow(new RuntimeException("Some error"));
 
-        boolean result = paymentService.processPayment(40L, 4L, BigDecimal.valueOf(200));
+        boolean result = paymentService.processPayment(40L, 4L, Money.parse("200"));
         assertFalse(result);
 
         ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
@@ -86,6 +129,160 @@ class PaymentServiceTest {
         assertEquals("Some error", savedPayment.getFailureReason());
     }
 
+    @Test
+    void testProcessPayment_UserNotFound() {
+        when(balanceService.processPayment(3L, Money.parse("100")))
+                .thenThrow(new EntityNotFoundException("Balance not found for user: 3"));
+
+        boolean result = paymentService.processPayment(30L, 3L, Money.parse("100"));
+        assertFalse(result);
+
+        ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(1)).save(captor.capture());
+        assertEquals(PaymentStatus.FAILED, captor.getValue().getStatus());
+        assertEquals("User not found", captor.getValue().getFailureReason());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testProcessPayment_AlreadyProcessed() {
+        when(paymentWriter.insertCompleted(argThat(p -> p.getOrderId() == 80L))).thenReturn(Optional.empty());
+
+        assertThrows(PaymentException.class, () -> paymentService.processPayment(80L, 8L, Money.parse("100")));
+        verify(balanceService, never()).processPayment(anyLong(), any());
+        verify(paymentGateway, never()).capture(anyString(), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void testProcessPaymentAsync_DebitsOnlyAfterAuthorization() {
+        CompletableFuture<GatewayResponse> authorization = new CompletableFuture<>();
+        when(paymentGateway.authorize(anyString(), eq(9L), any())).thenReturn(authorization);
+        when(balanceService.processPayment(9L, Money.parse("100"))).thenReturn(true);
+
+        CompletableFuture<Boolean> result = paymentService.processPaymentAsync(90L, 9L, Money.parse("100"));
+
+        // Nothing is debited and no transaction is open while the processor is still working
+        assertFalse(result.isDone());
+        verify(transactionManager, never()).getTransaction(any());
+        verify(balanceService, never()).processPayment(anyLong(), any());
+
+        authorization.complete(GatewayResponse.approved("auth"));
+        assertTrue(result.join());
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+        verify(paymentGateway).capture(anyString(), eq(Money.parse("100")));
+        verify(paymentWriter).insertCompleted(argThat(p -> p.getOrderId() == 90L));
+    }
+
+    @Test
+    void testProcessPayment_DeclinedByProcessor() {
+        when(paymentGateway.authorize(anyString(), eq(11L), any()))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.declined("Declined by processor")));
+
+        assertFalse(paymentService.processPayment(110L, 11L, Money.parse("100")));
+
+        verify(balanceService, never()).processPayment(anyLong(), any());
+        verify(paymentGateway, never()).capture(anyString(), any());
+        verify(paymentRepository).save(argThat(p -> p.getStatus() == PaymentStatus.FAILED
+                && "Declined by processor".equals(p.getFailureReason())));
+    }
+
+    @Test
+    void testProcessPayment_GatewayError() {
+        when(paymentGateway.authorize(anyString(), eq(12L), any()))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentGatewayException("Payment processor unavailable")));
+
+        assertFalse(paymentService.processPayment(120L, 12L, Money.parse("100")));
+
+        verify(balanceService, never()).processPayment(anyLong(), any());
+        verify(paymentRepository).save(argThat(p -> p.getStatus() == PaymentStatus.FAILED
+                && p.getFailureReason().contains("Payment processor unavailable")));
+    }
+
+    @Test
+    void testProcessPayment_CaptureFailureReversesDebit() {
+        when(balanceService.processPayment(13L, Money.parse("100"))).thenReturn(true);
+        when(paymentGateway.capture(anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new PaymentGatewayException("Payment processor unavailable")));
+
+        assertFalse(paymentService.processPayment(130L, 13L, Money.parse("100")));
+
+        verify(balanceService).refundPayment(13L, Money.parse("100"));
+        ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(1)).save(captor.capture());
+        assertEquals(PaymentStatus.FAILED, captor.getValue().getStatus());
+        assertTrue(captor.getValue().getFailureReason().startsWith("Capture failed"));
+    }
+
+    @Test
+    void testProcessPaymentsAsync_SettlesBatchInOneTransaction() {
+        when(paymentGateway.authorize(anyString(), eq(22L), any()))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.declined("Declined by processor")));
+        when(paymentWriter.insertCompletedAll(any())).thenReturn(Map.of(200L, 1000L, 201L, 1001L));
+        when(balanceService.processPayments(any())).thenReturn(new boolean[]{true, false});
+        when(balanceService.findUsersWithBalance(any())).thenReturn(Set.of(21L));
+
+        List<CompletableFuture<Boolean>> results = paymentService.processPaymentsAsync(List.of(
+                new PaymentRequest(200L, 20L, Money.parse("100")),
+                new PaymentRequest(201L, 21L, Money.parse("100")),
+                new PaymentRequest(202L, 22L, Money.parse("100"))));
+
+        assertTrue(results.get(0).join());
+        assertFalse(results.get(1).join());
+        assertFalse(results.get(2).join());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(balanceService).processPayments(List.of(
+                new PaymentRequest(200L, 20L, Money.parse("100")),
+                new PaymentRequest(201L, 21L, Money.parse("100"))));
+        verify(paymentWriter).insertFailed(argThat(payments -> payments.size() == 1
+                && payments.get(0).getOrderId() == 202L
+                && "Declined by processor".equals(payments.get(0).getFailureReason())));
+        verify(paymentWriter).markFailed(argThat(payments -> payments.size() == 1
+                && payments.get(0).getId() == 1001L
+                && "Insufficient funds".equals(payments.get(0).getFailureReason())));
+        verify(paymentGateway, times(1)).capture(anyString(), any());
+        verify(balanceService, never()).processPayment(anyLong(), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void testProcessPaymentsAsync_DuplicateOrders() {
+        when(paymentWriter.insertCompletedAll(any())).thenReturn(Map.of(210L, 1000L));
+        when(balanceService.processPayments(any())).thenReturn(new boolean[]{true});
+
+        // Order 210 is delivered twice in the batch, order 211 was paid before
+        List<CompletableFuture<Boolean>> results = paymentService.processPaymentsAsync(List.of(
+                new PaymentRequest(210L, 21L, Money.parse("100")),
+                new PaymentRequest(210L, 21L, Money.parse("100")),
+                new PaymentRequest(211L, 21L, Money.parse("100"))));
+
+        assertTrue(results.get(0).join());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertTrue(results.get(2).isCompletedExceptionally());
+        assertInstanceOf(DuplicatePaymentException.class, results.get(1).exceptionNow());
+        assertInstanceOf(DuplicatePaymentException.class, results.get(2).exceptionNow());
+        verify(paymentWriter).insertCompletedAll(argThat(payments -> payments.size() == 2));
+        verify(balanceService).processPayments(List.of(new PaymentRequest(210L, 21L, Money.parse("100"))));
+    }
+
+    @Test
+    void testProcessPaymentsAsync_FallsBackToSingleSettlement() {
+        when(paymentWriter.insertCompletedAll(any())).thenThrow(new RuntimeException("Batch insert failed"));
+        when(balanceService.processPayment(23L, Money.parse("100"))).thenReturn(true);
+        when(balanceService.processPayment(24L, Money.parse("100"))).thenReturn(false);
+
+        List<CompletableFuture<Boolean>> results = paymentService.processPaymentsAsync(List.of(
+                new PaymentRequest(230L, 23L, Money.parse("100")),
+                new PaymentRequest(240L, 24L, Money.parse("100"))));
+
+        assertTrue(results.get(0).join());
+        assertFalse(results.get(1).join());
+        verify(paymentWriter, times(2)).insertCompleted(any());
+        verify(paymentRepository).save(argThat(p -> p.getOrderId() == 240L
+                && "Insufficient funds".equals(p.getFailureReason())));
+    }
+
     @Test
     void testRefundPayment_Success() {
         // Готовим платеж со статусом COMPLETED
@@ -93,21 +290,22 @@ class PaymentServiceTest {
                 .id(500L)
                 .orderId(50L)
                 .userId(5L)
-                .amount(BigDecimal.valueOf(300))
+                .amount(Money.parse("300"))
                 .status(PaymentStatus.COMPLETED)
                 .build();
 
         when(paymentRepository.findByOrderId(50L)).thenReturn(Optional.of(payment));
 
-        doNothing().when(balanceService).refundPayment(5L, BigDecimal.valueOf(300));
+        doNothing().when(balanceService).refundPayment(5L, Money.parse("300"));
         when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
 
-        paymentService.refundPayment(50L, 5L, BigDecimal.valueOf(300));
+        paymentService.refundPayment(50L, 5L, Money.parse("300"));
 
         // Проверяем, что статус стал REFUNDED
         assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
         assertNotNull(payment.getRefundTimestamp());
-        verify(balanceService).refundPayment(5L, BigDecimal.valueOf(300));
+        verify(balanceService).refundPayment(5L, Money.parse("300"));
+        verify(paymentGateway).refund(any(), eq(Money.parse("300")));
     }
 
     @Test
@@ -116,12 +314,12 @@ class PaymentServiceTest {
         Payment payment = Payment.builder()
                 .orderId(60L)
                 .userId(6L)
-                .amount(BigDecimal.valueOf(200))
+                .amount(Money.parse("200"))
                 .status(PaymentStatus.FAILED)
                 .build();
         when(paymentRepository.findByOrderId(60L)).thenReturn(Optional.of(payment));
 
-        paymentService.refundPayment(60L, 6L, BigDecimal.valueOf(200));
+        paymentService.refundPayment(60L, 6L, Money.parse("200"));
 
         // Убедимся, что метод refundPayment у balanceService НЕ вызывался
         verify(balanceService, never()).refundPayment(anyLong(), any());
@@ -132,11 +330,175 @@ class PaymentServiceTest {
     @Test
     void testRefundPayment_NotFound() {
         when(paymentRepository.findByOrderId(70L)).thenReturn(Optional.empty());
-        Executable paymentRefund = () -> paymentService.refundPayment(70L, 7L, BigDecimal.valueOf(150));
+        Executable paymentRefund = () -> paymentService.refundPayment(70L, 7L, Money.parse("150"));
         RuntimeException ex = assertThrows(RuntimeException.class, paymentRefund);
         assertTrue(ex.getMessage().contains("Payment not found for order: 70"));
     }
 
+    @Test
+    void testProcessPayment_WithHoldsDefersCapture() {
+        PaymentService holdingService = newPaymentService(Duration.ofMinutes(30));
+        when(balanceService.processPayment(1L, Money.parse("500"))).thenReturn(true);
+
+        assertTrue(holdingService.processPayment(10L, 1L, Money.parse("500")));
+
+        verify(balanceHoldRepository).save(argThat(hold -> hold.getPaymentId() == 100L
+                && hold.getOrderId() == 10L
+                && hold.getStatus() == HoldStatus.HELD
+                && hold.getExpiresAt().isAfter(hold.getCreatedAt())));
+        verify(paymentGateway, never()).capture(anyString(), any());
+    }
+
+    @Test
+    void testCaptureHold_CapturesAtProcessor() {
+        BalanceHold hold = hold(HoldStatus.HELD);
+        Payment payment = Payment.builder().id(100L).orderId(10L).userId(1L).amount(Money.parse("500"))
+                .status(PaymentStatus.COMPLETED).transactionId("tx-10").build();
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold));
+        when(paymentRepository.findById(100L)).thenReturn(Optional.of(payment));
+
+        assertTrue(paymentService.captureHold(10L).join());
+
+        assertEquals(HoldStatus.CAPTURED, hold.getStatus());
+        assertNotNull(hold.getSettledAt());
+        verify(paymentGateway).capture("tx-10", Money.parse("500"));
+        verify(balanceService, never()).refundPayment(anyLong(), any());
+    }
+
+    @Test
+    void testCaptureHold_FailsIfHoldWasReleased() {
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold(HoldStatus.RELEASED)));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> paymentService.captureHold(10L).join());
+
+        assertInstanceOf(PaymentException.class, e.getCause());
+        verify(paymentGateway, never()).capture(anyString(), any());
+    }
+
+    @Test
+    void testCaptureHold_ReleasesHoldWhenProcessorDeclines() {
+        BalanceHold hold = hold(HoldStatus.HELD);
+        Payment payment = Payment.builder().id(100L).orderId(10L).userId(1L).amount(Money.parse("500"))
+                .status(PaymentStatus.COMPLETED).transactionId("tx-10").build();
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold));
+        when(paymentRepository.findById(100L)).thenReturn(Optional.of(payment));
+        when(paymentGateway.capture("tx-10", Money.parse("500")))
+                .thenReturn(CompletableFuture.completedFuture(GatewayResponse.declined("Card expired")));
+
+        assertFalse(paymentService.captureHold(10L).join());
+
+        assertEquals(HoldStatus.RELEASED, hold.getStatus());
+        assertEquals(PaymentStatus.FAILED, payment.getStatus());
+        verify(balanceService).refundPayment(1L, Money.parse("500"));
+    }
+
+    @Test
+    void testCaptureHold_NothingHeld() {
+        Payment payment = Payment.builder().id(100L).orderId(10L).status(PaymentStatus.COMPLETED).build();
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold(HoldStatus.CAPTURED)));
+        when(paymentRepository.findById(100L)).thenReturn(Optional.of(payment));
+
+        assertTrue(paymentService.captureHold(10L).join());
+
+        verify(balanceHoldRepository, never()).save(any());
+        verify(paymentGateway, never()).capture(anyString(), any());
+    }
+
+    @Test
+    void testCaptureHold_FailsIfCapturedPaymentWasReversed() {
+        Payment payment = Payment.builder().id(100L).orderId(10L).status(PaymentStatus.FAILED).build();
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold(HoldStatus.CAPTURED)));
+        when(paymentRepository.findById(100L)).thenReturn(Optional.of(payment));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> paymentService.captureHold(10L).join());
+
+        assertInstanceOf(PaymentException.class, e.getCause());
+        verify(paymentGateway, never()).capture(anyString(), any());
+    }
+
+    @Test
+    void testReleaseExpiredHold_SkipsHoldWhoseCaptureStarted() {
+        BalanceHold hold = hold(HoldStatus.HELD);
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold));
+
+        assertFalse(paymentService.releaseExpiredHold(10L));
+
+        assertEquals(HoldStatus.HELD, hold.getStatus());
+        verify(balanceService, never()).refundPayment(anyLong(), any());
+    }
+
+    @Test
+    void testRefundPayment_ReleasesHold() {
+        BalanceHold hold = hold(HoldStatus.HELD);
+        Payment payment = Payment.builder().id(100L).orderId(10L).userId(1L).amount(Money.parse("500"))
+                .status(PaymentStatus.COMPLETED).build();
+        when(balanceHoldRepository.findFirstByOrderIdOrderByIdDesc(10L)).thenReturn(Optional.of(hold));
+        when(paymentRepository.findById(100L)).thenReturn(Optional.of(payment));
+
+        paymentService.refundPayment(10L, 1L, Money.parse("500"));
+
+        assertEquals(HoldStatus.RELEASED, hold.getStatus());
+        assertEquals(PaymentStatus.REFUNDED, payment.getStatus());
+        assertNotNull(payment.getRefundTimestamp());
+        verify(balanceService).refundPayment(1L, Money.parse("500"));
+        // The authorization was never captured, so there is nothing to refund at the processor
+        verify(paymentGateway, never()).refund(any(), any());
+        verify(paymentRepository, never()).findByOrderId(anyLong());
+    }
+
+    @Test
+    void testProcessPaymentAsync_DebitsUserPaymentsInArrivalOrder() {
+        CompletableFuture<GatewayResponse> slowAuthorization = new CompletableFuture<>();
+        when(paymentGateway.authorize(anyString(), eq(1L), eq(Money.parse("500")))).thenReturn(slowAuthorization);
+        when(balanceService.processPayment(eq(1L), any())).thenReturn(true);
+        when(balanceService.processPayment(eq(2L), any())).thenReturn(true);
+
+        CompletableFuture<Boolean> first = paymentService.processPaymentAsync(10L, 1L, Money.parse("500"));
+        CompletableFuture<Boolean> second = paymentService.processPaymentAsync(11L, 1L, Money.parse("300"));
+        CompletableFuture<Boolean> otherUser = paymentService.processPaymentAsync(12L, 2L, Money.parse("300"));
+
+        // The second order is authorized, but waits for the first one's debit
+        assertTrue(otherUser.join());
+        assertFalse(second.isDone());
+        verify(balanceService, never()).processPayment(1L, Money.parse("300"));
+
+        slowAuthorization.complete(GatewayResponse.approved("auth"));
+        assertTrue(first.join());
+        assertTrue(second.join());
+        InOrder inOrder = inOrder(balanceService);
+        inOrder.verify(balanceService).processPayment(1L, Money.parse("500"));
+        inOrder.verify(balanceService).processPayment(1L, Money.parse("300"));
+    }
+
+    @Test
+    void testProcessPaymentAsync_GatewayThrowingReleasesPermit() {
+        when(paymentGateway.authorize(anyString(), eq(1L), any())).thenThrow(new IllegalStateException("Gateway client closed"));
+
+        // More calls than max-in-flight permits; a leaked permit would block the last one
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 11; i++) {
+                assertFalse(paymentService.processPaymentAsync(10L + i, 1L, Money.parse("500")).join());
+            }
+        });
+        verify(paymentRepository, times(11)).save(argThat(p -> p.getStatus() == PaymentStatus.FAILED));
+    }
+
+    @Test
+    void testStop_WaitsForPendingPayments() throws Exception {
+        CompletableFuture<GatewayResponse> authorization = new CompletableFuture<>();
+        when(paymentGateway.authorize(anyString(), eq(1L), any())).thenReturn(authorization);
+        when(balanceService.processPayment(1L, Money.parse("500"))).thenReturn(true);
+        CompletableFuture<Boolean> result = paymentService.processPaymentAsync(10L, 1L, Money.parse("500"));
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(paymentService::stop);
+        Thread.sleep(100);
+        assertFalse(stopped.isDone());
+
+        authorization.complete(GatewayResponse.approved("auth"));
+        stopped.get(5, TimeUnit.SECONDS);
+        assertTrue(result.join());
+    }
+
     @Test
     void testGetAllPayments() {
         List<Payment> payments = new ArrayList<>();
@@ -168,4 +530,14 @@ class PaymentServiceTest {
                 () -> paymentService.getPaymentByOrderId(999L));
         assertTrue(ex.getMessage().contains("Payment not found for order: 999"));
     }
+
+    private PaymentService newPaymentService(Duration holdTtl) {
+        return new PaymentService(paymentRepository, paymentWriter, balanceHoldRepository, balanceService, paymentGateway,
+                new TransactionTemplate(transactionManager), Duration.ofSeconds(5), Runnable::run, 10, holdTtl);
+    }
+
+    private static BalanceHold hold(HoldStatus status) {
+        return BalanceHold.builder().id(1L).paymentId(100L).orderId(10L).userId(1L).amount(Money.parse("500"))
+                .status(status).expiresAt(LocalDateTime.now().plusMinutes(30)).build();
+    }
 }